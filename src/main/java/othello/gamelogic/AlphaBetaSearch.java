@@ -0,0 +1,439 @@
+package othello.gamelogic;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Depth-first negamax search with alpha-beta pruning on a SearchPosition.
+ * Children are generated from the legal-move mask as the search reaches them and every
+ * move is made and undone in place, so no tree of nodes or board copies is ever built.
+ * By default it runs as a principal variation search: only the first move of a node gets the
+ * full window, the others are tested with a null window and re-searched only if they beat it.
+ * Iterative deepening additionally starts each iteration with an aspiration window around
+ * the previous iteration's score.
+ */
+public class AlphaBetaSearch {
+
+    /** Larger than any score the search can return. */
+    public static final int INFINITY = 1_000_000;
+
+    /** Base score of a finished game, the final disc difference is added on top of it. */
+    public static final int WIN_SCORE = 100_000;
+
+    /** Deepest iteration the iterative deepening driver will start. */
+    public static final int MAX_DEPTH = 60;
+
+    // How many nodes are searched between two clock reads
+    private static final long CLOCK_CHECK_MASK = 1023;
+
+    /** Default half-width of the aspiration window, a little under the value of one corner. */
+    public static final int DEFAULT_ASPIRATION_WINDOW = 50;
+
+    // Deepest ply a search can reach, counting passes
+    private static final int MAX_PLY = 128;
+
+    private final PositionEvaluator evaluator;
+    private TranspositionTable table;
+    private MoveOrdering ordering = new HeuristicMoveOrdering();
+    // One move list per ply so ordering never allocates
+    private final int[][] moveBuffers = new int[MAX_PLY][64];
+    // Triangular PV table: row ply holds the best line found from that ply, up to pvLength[ply]
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private boolean principalVariationSearch = true;
+    private int aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+    private long nodes;
+
+    // Wall-clock deadline in System.nanoTime units, only enforced when hasDeadline is set
+    private boolean hasDeadline;
+    private long deadline;
+    private boolean stopped;
+    // Set by another thread to end the search early, checked together with the clock
+    private AtomicBoolean stopSignal;
+    // Added to every iteration's depth, lets parallel helpers search ahead of the main thread
+    private int depthOffset;
+
+    public AlphaBetaSearch() {
+        this(new SquareWeightEvaluator());
+    }
+
+    public AlphaBetaSearch(PositionEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Searches a position to a fixed depth.
+     * @param position the position to search, it is restored before returning
+     * @param depth the number of plies to look ahead, at least 1
+     * @return the best move for the side to move with its score and the node count
+     */
+    public SearchResult search(SearchPosition position, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Error: Depth should be at least 1");
+        }
+        nodes = 0;
+        hasDeadline = false;
+        stopped = false;
+        evaluator.prepare(position);
+        ordering.newSearch();
+        return searchRoot(position, depth, TranspositionTable.NO_MOVE, -INFINITY, INFINITY);
+    }
+
+    /**
+     * Iterative deepening: searches depth 1, 2, 3... until the time budget runs out.
+     * An iteration that is interrupted by the deadline is thrown away, so the result always comes
+     * from the last completed depth. Each iteration searches the previous iteration's best move first,
+     * inside an aspiration window around its score that is widened to the full range if the score
+     * falls outside it.
+     * @param position the position to search, it is restored before returning
+     * @param budgetMillis the wall-clock time allowed for this move
+     * @param maxDepth the deepest iteration to start
+     * @return the result of the deepest completed iteration, with the nodes of all iterations
+     */
+    public SearchResult searchTimed(SearchPosition position, long budgetMillis, int maxDepth) {
+        long start = System.nanoTime();
+        nodes = 0;
+        stopped = false;
+        evaluator.prepare(position);
+        // Killers and history carry over from one iteration to the next
+        ordering.newSearch();
+        // Depth 1 always completes so there is a move to return
+        hasDeadline = false;
+        SearchResult completed = searchRoot(position, 1, TranspositionTable.NO_MOVE, -INFINITY, INFINITY);
+        hasDeadline = true;
+        deadline = start + budgetMillis * 1_000_000L;
+
+        for (int depth = 2; depth <= maxDepth; depth++) {
+            // Past the end of the game every deeper iteration returns the same result
+            if (completed.getDepth() >= position.getEmptyCount() || !completed.hasMove()) {
+                break;
+            }
+            // The next iteration costs several times the last one, skip it when it cannot finish
+            long elapsed = System.nanoTime() - start;
+            if (elapsed * 2 > budgetMillis * 1_000_000L) {
+                break;
+            }
+            SearchResult result = aspirationSearch(position, Math.min(depth + depthOffset, maxDepth), completed);
+            if (stopped) {
+                break;
+            }
+            completed = result;
+        }
+        hasDeadline = false;
+        return new SearchResult(completed.getBestMove(), completed.getScore(), completed.getDepth(), nodes,
+                completed.getPrincipalVariation());
+    }
+
+    // Searches one iteration in a narrow window around the last score, re-searching a side that fails
+    private SearchResult aspirationSearch(SearchPosition position, int depth, SearchResult previous) {
+        int guess = previous.getScore();
+        // Game results are far apart from each other, a narrow window around one only wastes a search
+        if (aspirationWindow <= 0 || Math.abs(guess) >= WIN_SCORE) {
+            return searchRoot(position, depth, previous.getBestMove(), -INFINITY, INFINITY);
+        }
+        int alpha = guess - aspirationWindow;
+        int beta = guess + aspirationWindow;
+        while (true) {
+            SearchResult result = searchRoot(position, depth, previous.getBestMove(), alpha, beta);
+            if (stopped) {
+                return result;
+            }
+            if (result.getScore() <= alpha) {
+                alpha = -INFINITY;
+            } else if (result.getScore() >= beta) {
+                beta = INFINITY;
+            } else {
+                return result;
+            }
+        }
+    }
+
+    // Searches the root in the ordering's order, the preferred move (or else the table move) as hash move.
+    // The score is exact inside (alpha, beta) and only a bound outside it.
+    private SearchResult searchRoot(SearchPosition position, int depth, int preferredMove, int alpha, int beta) {
+        nodes++;
+        pvLength[0] = 0;
+        long moves = position.legalMoves();
+        if (moves == 0) {
+            int score = evaluateNoMoves(position, depth, 0, alpha, beta);
+            return new SearchResult(SearchPosition.PASS, score, depth, nodes, principalVariation());
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int hashMove = (preferredMove != TranspositionTable.NO_MOVE && (moves & Bitboard.bit(preferredMove)) != 0)
+                ? preferredMove : tableMove(position.getHash(), moves);
+        int[] ordered = moveBuffers[0];
+        int count = ordering.orderMoves(position, moves, 0, hashMove, ordered);
+        int bestMove = ordered[0];
+        for (int i = 0; i < count; i++) {
+            int square = ordered[i];
+            position.makeMove(square);
+            int score = searchChild(position, depth - 1, 1, alpha, beta, i == 0);
+            position.undoMove();
+            if (stopped) {
+                break;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = square;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(0, square);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (pvLength[0] == 0) {
+            // Every move failed low, the line is only known to start with the chosen move
+            pvTable[0][0] = bestMove;
+            pvLength[0] = 1;
+        }
+        if (table != null && !stopped) {
+            table.store(position.getHash(), depth, boundType(best, originalAlpha, beta), best, bestMove);
+        }
+        return new SearchResult(bestMove, best, depth, nodes, principalVariation());
+    }
+
+    // Searches a child that was just made. With PVS every child after the first is first tested
+    // against a null window just above alpha, and only searched fully if it turns out better.
+    private int searchChild(SearchPosition position, int depth, int ply, int alpha, int beta, boolean first) {
+        if (first || !principalVariationSearch || beta - alpha == 1) {
+            return -negamax(position, depth, ply, -beta, -alpha);
+        }
+        int score = -negamax(position, depth, ply, -alpha - 1, -alpha);
+        if (score > alpha && score < beta && !stopped) {
+            score = -negamax(position, depth, ply, -beta, -alpha);
+        }
+        return score;
+    }
+
+    private int negamax(SearchPosition position, int depth, int ply, int alpha, int beta) {
+        nodes++;
+        if ((nodes & CLOCK_CHECK_MASK) == 0
+                && ((stopSignal != null && stopSignal.get()) || (hasDeadline && System.nanoTime() - deadline > 0))) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        pvLength[ply] = ply;
+        if (depth == 0) {
+            return evaluator.evaluate(position);
+        }
+
+        // A stored result that is deep enough may settle this node without searching it
+        long key = position.getHash();
+        int ttMove = TranspositionTable.NO_MOVE;
+        if (table != null) {
+            long entry = table.probe(key);
+            if (entry != TranspositionTable.MISS) {
+                ttMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int score = TranspositionTable.score(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        // Once a win is in hand, a line that the opponent's stable discs keep from winning by more can
+        // be cut at once: every score below it is a board weight, a draw, a loss or a smaller win
+        if (alpha >= WIN_SCORE
+                && WIN_SCORE + Stability.upperBound(position.getPlayer(), position.getOpponent()) <= alpha) {
+            return alpha;
+        }
+
+        long moves = position.legalMoves();
+        if (moves == 0) {
+            return evaluateNoMoves(position, depth, ply, alpha, beta);
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = TranspositionTable.NO_MOVE;
+        int hashMove = (ttMove != TranspositionTable.NO_MOVE && (moves & Bitboard.bit(ttMove)) != 0)
+                ? ttMove : TranspositionTable.NO_MOVE;
+        int[] ordered = moveBuffers[ply];
+        int count = ordering.orderMoves(position, moves, ply, hashMove, ordered);
+        for (int i = 0; i < count; i++) {
+            int square = ordered[i];
+            position.makeMove(square);
+            int score = searchChild(position, depth - 1, ply + 1, alpha, beta, i == 0);
+            position.undoMove();
+            // An interrupted subtree returns a meaningless score that must not reach the table
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = square;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        ordering.recordCutoff(position, square, ply, depth);
+                        break;
+                    }
+                    updatePrincipalVariation(ply, square);
+                }
+            }
+        }
+
+        if (table != null) {
+            table.store(key, depth, boundType(best, originalAlpha, beta), best, bestMove);
+        }
+        return best;
+    }
+
+    private static int boundType(int score, int alpha, int beta) {
+        return (score <= alpha) ? TranspositionTable.UPPER
+                : (score >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+    }
+
+    // The line at ply becomes the move followed by the line found one ply deeper
+    private void updatePrincipalVariation(int ply, int move) {
+        int[] line = pvTable[ply];
+        line[ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, line, ply + 1, length - (ply + 1));
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    private int[] principalVariation() {
+        int[] line = new int[pvLength[0]];
+        System.arraycopy(pvTable[0], 0, line, 0, line.length);
+        return line;
+    }
+
+    // The stored best move for a position if it is one of the given legal moves
+    private int tableMove(long key, long moves) {
+        if (table == null) {
+            return TranspositionTable.NO_MOVE;
+        }
+        long entry = table.probe(key);
+        int move = (entry == TranspositionTable.MISS) ? TranspositionTable.NO_MOVE : TranspositionTable.move(entry);
+        return (move != TranspositionTable.NO_MOVE && (moves & Bitboard.bit(move)) != 0)
+                ? move : TranspositionTable.NO_MOVE;
+    }
+
+    // The side to move has no move: either the game is over or it passes and the search goes on
+    private int evaluateNoMoves(SearchPosition position, int depth, int ply, int alpha, int beta) {
+        if (position.opponentMoves() == 0) {
+            return finalScore(position);
+        }
+        position.makePass();
+        int score = -negamax(position, depth, ply + 1, -beta, -alpha);
+        position.undoMove();
+        if (stopped) {
+            return 0;
+        }
+        if (score > alpha && score < beta) {
+            updatePrincipalVariation(ply, SearchPosition.PASS);
+        }
+        return score;
+    }
+
+    /**
+     * @return the score of a finished game from the point of view of the side to move
+     */
+    public static int finalScore(SearchPosition position) {
+        int difference = position.discDifference();
+        if (difference > 0) {
+            return WIN_SCORE + difference;
+        } else if (difference < 0) {
+            return -WIN_SCORE + difference;
+        }
+        return 0;
+    }
+
+    /**
+     * Shares a transposition table with this search, or removes it when null.
+     * @param table the table to probe and store results in
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Lets another thread stop this search: once the signal is set, the running iteration is
+     * abandoned within a few thousand nodes as if its deadline had passed.
+     * @param stopSignal the shared flag to watch, or null to only stop on the deadline
+     */
+    public void setStopSignal(AtomicBoolean stopSignal) {
+        this.stopSignal = stopSignal;
+    }
+
+    /**
+     * Makes every iteration of searchTimed search deeper than its iteration number, capped at maxDepth.
+     * @param depthOffset the extra plies per iteration, 0 for a normal search
+     */
+    public void setDepthOffset(int depthOffset) {
+        if (depthOffset < 0) {
+            throw new IllegalArgumentException("Error: Depth offset should not be negative");
+        }
+        this.depthOffset = depthOffset;
+    }
+
+    /**
+     * Switches between principal variation search and plain full-window alpha-beta.
+     * Both return the same scores, PVS usually visits fewer nodes.
+     * @param enabled true to test moves after the first with a null window
+     */
+    public void setPrincipalVariationSearch(boolean enabled) {
+        this.principalVariationSearch = enabled;
+    }
+
+    public boolean isPrincipalVariationSearch() {
+        return principalVariationSearch;
+    }
+
+    /**
+     * Sets the half-width of the aspiration window used by iterative deepening.
+     * @param window the distance from the previous score to each side of the window, 0 to always use the full window
+     */
+    public void setAspirationWindow(int window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("Error: Aspiration window should not be negative");
+        }
+        this.aspirationWindow = window;
+    }
+
+    public int getAspirationWindow() {
+        return aspirationWindow;
+    }
+
+    /**
+     * Replaces the move ordering, for example with NaturalMoveOrdering to measure its effect.
+     * @param ordering the ordering to use from the next search on
+     */
+    public void setMoveOrdering(MoveOrdering ordering) {
+        this.ordering = ordering;
+    }
+
+    public MoveOrdering getMoveOrdering() {
+        return ordering;
+    }
+
+    /**
+     * @return true if the last timed search ran out of time inside an iteration
+     */
+    public boolean wasStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the number of positions visited by the last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,89 @@
+package othello.gamelogic;
+
+/**
+ * Scores many positions in one call, for callers such as playouts, training and benchmarks that
+ * evaluate boards by the thousand. The positions are passed as parallel arrays of disc masks, so
+ * the loops run over plain longs without building a BoardSpace board or allocating, and the
+ * square weights are summed with the weight-class popcounts of PhaseWeights.score.
+ */
+public class BatchEvaluator {
+
+    private final PhaseWeights weights;
+
+    /**
+     * Scores with PhaseWeights.getDefault().
+     */
+    public BatchEvaluator() {
+        this(PhaseWeights.getDefault());
+    }
+
+    /**
+     * @param weights the square weights of every phase
+     */
+    public BatchEvaluator(PhaseWeights weights) {
+        if (weights == null) {
+            throw new IllegalArgumentException("Error: Phase weights should not be null");
+        }
+        this.weights = weights;
+    }
+
+    /**
+     * Scores the first count positions of the arrays with the square weights.
+     * @param own the discs of the side to score for in each position
+     * @param opp the discs of the other side in each position
+     * @param count the number of positions
+     * @param scores receives the square weight score of each position
+     */
+    public void scores(long[] own, long[] opp, int count, int[] scores) {
+        checkLengths(own, opp, count, scores);
+        for (int i = 0; i < count; i++) {
+            scores[i] = weights.score(own[i], opp[i]);
+        }
+    }
+
+    /**
+     * Counts the legal moves of both sides in the first count positions of the arrays.
+     * @param own the discs of the side to count for in each position
+     * @param opp the discs of the other side in each position
+     * @param count the number of positions
+     * @param mobilities receives the moves of own minus the moves of opp in each position
+     */
+    public static void mobilities(long[] own, long[] opp, int count, int[] mobilities) {
+        checkLengths(own, opp, count, mobilities);
+        for (int i = 0; i < count; i++) {
+            mobilities[i] = mobility(own[i], opp[i]);
+        }
+    }
+
+    /**
+     * Scores the first count positions with the square weights plus a weight per move of mobility.
+     * @param own the discs of the side to score for in each position
+     * @param opp the discs of the other side in each position
+     * @param count the number of positions
+     * @param mobilityWeight the score of one legal move more than the other side, 0 for square weights only
+     * @param scores receives the score of each position
+     */
+    public void evaluate(long[] own, long[] opp, int count, int mobilityWeight, int[] scores) {
+        checkLengths(own, opp, count, scores);
+        for (int i = 0; i < count; i++) {
+            scores[i] = weights.score(own[i], opp[i]) + mobilityWeight * mobility(own[i], opp[i]);
+        }
+    }
+
+    /**
+     * @return the legal moves of own minus the legal moves of opp
+     */
+    public static int mobility(long own, long opp) {
+        return Long.bitCount(Bitboard.legalMoves(own, opp)) - Long.bitCount(Bitboard.legalMoves(opp, own));
+    }
+
+    public PhaseWeights getWeights() {
+        return weights;
+    }
+
+    private static void checkLengths(long[] own, long[] opp, int count, int[] out) {
+        if (count < 0 || count > own.length || count > opp.length || count > out.length) {
+            throw new IllegalArgumentException("Error: Batch of " + count + " positions does not fit the arrays");
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package othello.gamelogic;
+
+/**
+ * Compact representation of an Othello position.
+ * Each color is stored as a 64-bit mask where bit (x * 8 + y) represents board[x][y],
+ * together with the side that is about to move.
+ * Move generation and flipping are done with shifts on whole masks instead of walking
+ * BoardSpace objects one square at a time.
+ */
+public final class Bitboard {
+
+    // Masks that clear the column a horizontal or diagonal shift would wrap into
+    private static final long NOT_FIRST_COLUMN = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_LAST_COLUMN = 0x7F7F7F7F7F7F7F7FL;
+    private static final long INNER_COLUMNS = 0x7E7E7E7E7E7E7E7EL;
+
+    // Steps in x and y of the eight directions, the first four lead to higher square indices
+    private static final int[][] DIRECTIONS = {
+            {0, 1}, {1, -1}, {1, 0}, {1, 1}, {0, -1}, {-1, 1}, {-1, 0}, {-1, -1}
+    };
+    // RAYS[square * 8 + direction] holds the squares from a square to the edge, the square itself excluded
+    private static final long[] RAYS = new long[64 * 8];
+    // BETWEEN[from * 64 + to] holds the squares strictly between two squares on one line, 0 off a line
+    private static final long[] BETWEEN = new long[64 * 64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+                long ray = 0;
+                int x = getX(square) + DIRECTIONS[direction][0];
+                int y = getY(square) + DIRECTIONS[direction][1];
+                while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                    int to = square(x, y);
+                    BETWEEN[square * 64 + to] = ray;
+                    ray |= bit(to);
+                    x += DIRECTIONS[direction][0];
+                    y += DIRECTIONS[direction][1];
+                }
+                RAYS[square * 8 + direction] = ray;
+            }
+        }
+    }
+
+    private final long black;
+    private final long white;
+    private final boolean blackToMove;
+
+    public Bitboard(long black, long white, boolean blackToMove) {
+        this.black = black;
+        this.white = white;
+        this.blackToMove = blackToMove;
+    }
+
+    /**
+     * @return the standard starting position with black to move
+     */
+    public static Bitboard initial() {
+        long black = bit(square(3, 4)) | bit(square(4, 3));
+        long white = bit(square(3, 3)) | bit(square(4, 4));
+        return new Bitboard(black, white, true);
+    }
+
+    /**
+     * @return the mask of black discs
+     */
+    public long getBlack() {
+        return black;
+    }
+
+    /**
+     * @return the mask of white discs
+     */
+    public long getWhite() {
+        return white;
+    }
+
+    /**
+     * @return true if black is the side to move
+     */
+    public boolean isBlackToMove() {
+        return blackToMove;
+    }
+
+    /**
+     * @return the color of the side to move
+     */
+    public BoardSpace.SpaceType getSideToMove() {
+        return blackToMove ? BoardSpace.SpaceType.BLACK : BoardSpace.SpaceType.WHITE;
+    }
+
+    /**
+     * @return the discs of the side to move
+     */
+    public long getPlayer() {
+        return blackToMove ? black : white;
+    }
+
+    /**
+     * @return the discs of the side that is not moving
+     */
+    public long getOpponent() {
+        return blackToMove ? white : black;
+    }
+
+    /**
+     * @return the mask of empty squares
+     */
+    public long getEmpty() {
+        return ~(black | white);
+    }
+
+    /**
+     * @return the legal moves of the side to move as a mask
+     */
+    public long legalMoves() {
+        return legalMoves(getPlayer(), getOpponent());
+    }
+
+    /**
+     * Plays a move for the side to move and returns the resulting position.
+     * The square is assumed to be a legal move.
+     * @param square the square index (x * 8 + y) to place on
+     * @return the position after the move, with the other side to move
+     */
+    public Bitboard play(int square) {
+        long player = getPlayer();
+        long opponent = getOpponent();
+        long flipped = flips(player, opponent, square);
+        player |= flipped | bit(square);
+        opponent &= ~flipped;
+        return blackToMove ? new Bitboard(player, opponent, false) : new Bitboard(opponent, player, true);
+    }
+
+    /**
+     * @return the same discs with the other side to move
+     */
+    public Bitboard pass() {
+        return new Bitboard(black, white, !blackToMove);
+    }
+
+    /**
+     * @return the Zobrist hash of this position
+     */
+    public long hash() {
+        return Zobrist.hash(black, white, blackToMove);
+    }
+
+    /**
+     * @return true if neither side has a legal move
+     */
+    public boolean isGameOver() {
+        return legalMoves(black, white) == 0 && legalMoves(white, black) == 0;
+    }
+
+    /**
+     * Computes every empty square where the owner of {@code own} can place a disc.
+     * Uses a flood fill in each of the eight directions through the opponent's discs.
+     * @param own the discs of the moving side
+     * @param opp the discs of the other side
+     * @return a mask of all legal destinations
+     */
+    public static long legalMoves(long own, long opp) {
+        long empty = ~(own | opp);
+        long inner = opp & INNER_COLUMNS;
+        long moves = 0;
+        long t;
+
+        // Horizontal directions use the inner mask so runs cannot wrap around a row
+        t = inner & (own << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1); t |= inner & (t << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1);
+        moves |= t << 1;
+
+        t = inner & (own >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        moves |= t >>> 1;
+
+        // Vertical directions fall off the ends of the long on their own
+        t = opp & (own << 8);
+        t |= opp & (t << 8); t |= opp & (t << 8); t |= opp & (t << 8);
+        t |= opp & (t << 8); t |= opp & (t << 8);
+        moves |= t << 8;
+
+        t = opp & (own >>> 8);
+        t |= opp & (t >>> 8); t |= opp & (t >>> 8); t |= opp & (t >>> 8);
+        t |= opp & (t >>> 8); t |= opp & (t >>> 8);
+        moves |= t >>> 8;
+
+        // Diagonals
+        t = inner & (own << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9); t |= inner & (t << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9);
+        moves |= t << 9;
+
+        t = inner & (own >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        moves |= t >>> 9;
+
+        t = inner & (own << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7); t |= inner & (t << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7);
+        moves |= t << 7;
+
+        t = inner & (own >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        moves |= t >>> 7;
+
+        return moves & empty;
+    }
+
+    /**
+     * Computes the same flips as flips() with shifts instead of tables. Each direction fills from
+     * the placed disc through the opponent's discs and keeps the run only if the square after it
+     * holds one of the mover's discs.
+     * @param own the discs of the moving side
+     * @param opp the discs of the other side
+     * @param square the square index (x * 8 + y) to place on
+     * @return a mask of the flipped discs, or 0 if the placement flips nothing
+     */
+    public static long shiftFlips(long own, long opp, int square) {
+        long move = bit(square);
+        // Discs on the edge columns can never be flipped by a horizontal or diagonal run
+        long inner = opp & INNER_COLUMNS;
+        return runUp(move, own, inner, 1) | runDown(move, own, inner, 1)
+                | runUp(move, own, opp, 8) | runDown(move, own, opp, 8)
+                | runUp(move, own, inner, 9) | runDown(move, own, inner, 9)
+                | runUp(move, own, inner, 7) | runDown(move, own, inner, 7);
+    }
+
+    // The run of flippable discs towards higher squares, a run has at most six discs
+    private static long runUp(long move, long own, long opp, int shift) {
+        long run = (move << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        return ((run << shift) & own) != 0 ? run : 0;
+    }
+
+    // The run of flippable discs towards lower squares
+    private static long runDown(long move, long own, long opp, int shift) {
+        long run = (move >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        return ((run >>> shift) & own) != 0 ? run : 0;
+    }
+
+    /**
+     * Computes the opponent discs that would be flipped by placing on a square.
+     * In each direction the first square of the precomputed ray that is not an opponent disc ends
+     * the run, and if the mover owns it the precomputed squares between it and the placed disc are
+     * the flips of that direction.
+     * @param own the discs of the moving side
+     * @param opp the discs of the other side
+     * @param square the square index (x * 8 + y) to place on
+     * @return a mask of the flipped discs, or 0 if the placement flips nothing
+     */
+    public static long flips(long own, long opp, int square) {
+        long flipped = 0;
+        int rays = square * 8;
+        int lines = square * 64;
+        for (int direction = 0; direction < 4; direction++) {
+            long stops = RAYS[rays + direction] & ~opp;
+            if (stops != 0) {
+                int end = Long.numberOfTrailingZeros(stops);
+                if ((own & bit(end)) != 0) {
+                    flipped |= BETWEEN[lines + end];
+                }
+            }
+        }
+        for (int direction = 4; direction < 8; direction++) {
+            long stops = RAYS[rays + direction] & ~opp;
+            if (stops != 0) {
+                int end = 63 - Long.numberOfLeadingZeros(stops);
+                if ((own & bit(end)) != 0) {
+                    flipped |= BETWEEN[lines + end];
+                }
+            }
+        }
+        return flipped;
+    }
+
+    /**
+     * @return the squares strictly between two squares that share a row, column or diagonal,
+     *         or 0 if they share none
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from * 64 + to];
+    }
+
+    /**
+     * @return the squares next to any square of the mask in one of the eight directions
+     */
+    public static long neighbours(long mask) {
+        long horizontal = ((mask << 1) & NOT_FIRST_COLUMN) | ((mask >>> 1) & NOT_LAST_COLUMN) | mask;
+        return ((horizontal << 8) | (horizontal >>> 8) | horizontal) & ~mask;
+    }
+
+    /**
+     * Writes the squares of a mask into a caller-owned buffer, lowest square first.
+     * @param mask the squares to list
+     * @param squares a buffer with room for at least Long.bitCount(mask) entries
+     * @return the number of squares written
+     */
+    public static int toSquares(long mask, int[] squares) {
+        int count = 0;
+        while (mask != 0) {
+            squares[count++] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return the square of the n-th set bit of a mask, counting from the lowest square and from 0
+     */
+    public static int nthSquare(long mask, int n) {
+        for (int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * @return the square index for board[x][y]
+     */
+    public static int square(int x, int y) {
+        return x * OthelloGame.GAME_BOARD_SIZE + y;
+    }
+
+    /**
+     * @return the x coordinate of a square index
+     */
+    public static int getX(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * @return the y coordinate of a square index
+     */
+    public static int getY(int square) {
+        return square & 7;
+    }
+
+    /**
+     * @return a mask with only the given square set
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Collects the squares of a board that hold a given type.
+     * @param board the BoardSpace board to read
+     * @param type the type to collect
+     * @return a mask with a bit set for every matching square
+     */
+    public static long maskOf(BoardSpace[][] board, BoardSpace.SpaceType type) {
+        long mask = 0;
+        for (int x = 0; x < board.length; x++) {
+            for (int y = 0; y < board[x].length; y++) {
+                if (board[x][y].getType() == type) {
+                    mask |= bit(square(x, y));
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Converts a BoardSpace board into a bitboard.
+     * @param board the BoardSpace board to convert
+     * @param sideToMove the color that moves next
+     * @return the equivalent bitboard position
+     */
+    public static Bitboard fromBoardSpaces(BoardSpace[][] board, BoardSpace.SpaceType sideToMove) {
+        return new Bitboard(maskOf(board, BoardSpace.SpaceType.BLACK), maskOf(board, BoardSpace.SpaceType.WHITE),
+                sideToMove != BoardSpace.SpaceType.WHITE);
+    }
+
+    /**
+     * @return a newly allocated BoardSpace board with the same discs as this position
+     */
+    public BoardSpace[][] toBoardSpaces() {
+        int size = OthelloGame.GAME_BOARD_SIZE;
+        BoardSpace[][] board = new BoardSpace[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                board[x][y] = new BoardSpace(x, y, BoardSpace.SpaceType.EMPTY);
+            }
+        }
+        writeTo(board);
+        return board;
+    }
+
+    /**
+     * Overwrites the types of an existing BoardSpace board so that the GUI objects stay the same.
+     * @param board the board to update in place
+     */
+    public void writeTo(BoardSpace[][] board) {
+        for (int x = 0; x < board.length; x++) {
+            for (int y = 0; y < board[x].length; y++) {
+                long b = bit(square(x, y));
+                if ((black & b) != 0) {
+                    board[x][y].setType(BoardSpace.SpaceType.BLACK);
+                } else if ((white & b) != 0) {
+                    board[x][y].setType(BoardSpace.SpaceType.WHITE);
+                } else {
+                    board[x][y].setType(BoardSpace.SpaceType.EMPTY);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Bitboard)) {
+            return false;
+        }
+        Bitboard that = (Bitboard) other;
+        return black == that.black && white == that.white && blackToMove == that.blackToMove;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(black * 31 + white) * 2 + (blackToMove ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                long b = bit(square(x, y));
+                sb.append((black & b) != 0 ? 'B' : (white & b) != 0 ? 'W' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package othello.gamelogic;
+
+import othello.Constants;
+
+/**
+ * Monte Carlo tree search on an MCTSNodeStore, for searches too large for MCTSNode objects: a
+ * million nodes take about 14 MB. The tree holds only moves and counters; every simulation
+ * replays the moves from the root on a pair of disc masks as it descends, expands the node it
+ * reaches, and plays out the rest of the game with a PlayoutEngine.
+ * <p>
+ * Passes are nodes of their own, so the side to move alternates at every level and a node's wins
+ * are always those of the side that played its move. Selection maximises the UCT value from that
+ * side's point of view. When the store is full, the search goes on without adding nodes.
+ */
+public class CompactMCTS {
+
+    /** Default number of nodes, about 14 MB of arrays. */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /** Move returned when the side to move has no legal move. */
+    public static final int NO_MOVE = -1;
+
+    // A game has at most 60 placements plus passes, far fewer than this many levels
+    private static final int MAX_PATH = 128;
+
+    private final MCTSNodeStore store;
+    private final PlayoutEngine engine;
+    private final int[] path = new int[MAX_PATH];
+
+    public CompactMCTS() {
+        this(DEFAULT_CAPACITY, System.nanoTime());
+    }
+
+    /**
+     * @param capacity the most nodes the tree can hold
+     * @param seed the seed of the expansions and playouts
+     */
+    public CompactMCTS(int capacity, long seed) {
+        this.store = new MCTSNodeStore(capacity);
+        this.engine = new PlayoutEngine(seed);
+    }
+
+    /**
+     * Grows a new tree from the position and picks the most visited move.
+     * @param position the position to search, with its side to move
+     * @param simulations the number of simulations
+     * @return the square of the chosen move, or NO_MOVE if the side to move has to pass
+     */
+    public int search(Bitboard position, int simulations) {
+        store.clear();
+        long own = position.getPlayer();
+        long opp = position.getOpponent();
+        for (int i = 0; i < simulations; i++) {
+            simulate(own, opp);
+        }
+        int best = NO_MOVE;
+        int bestVisits = -1;
+        int first = store.getFirstChild(0);
+        for (int child = first; child < first + store.getChildCount(0); child++) {
+            if (store.getMove(child) != MCTSNodeStore.PASS && store.getVisits(child) > bestVisits) {
+                bestVisits = store.getVisits(child);
+                best = store.getMove(child);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Searches a board for a player, like MCTS.MCTS_Strategy.
+     * @param board the current board
+     * @param self the player to move
+     * @param simulations the number of simulations
+     * @return the chosen space of the board, or null if the player has no move
+     */
+    public BoardSpace search(BoardSpace[][] board, Player self, int simulations) {
+        int square = search(Bitboard.fromBoardSpaces(board, self.getColor()), simulations);
+        return (square == NO_MOVE) ? null : board[Bitboard.getX(square)][Bitboard.getY(square)];
+    }
+
+    // One selection, expansion, playout and backpropagation; own is always the side to move
+    private void simulate(long own, long opp) {
+        int node = 0;
+        int length = 0;
+        path[length++] = node;
+        while (store.isExpanded(node) && store.getChildCount(node) > 0) {
+            node = select(node);
+            int square = store.getMove(node);
+            if (square != MCTSNodeStore.PASS) {
+                long flips = Bitboard.flips(own, opp, square);
+                own |= flips | Bitboard.bit(square);
+                opp &= ~flips;
+            }
+            long swap = own;
+            own = opp;
+            opp = swap;
+            path[length++] = node;
+        }
+        if (!store.isExpanded(node)) {
+            long moves = Bitboard.legalMoves(own, opp);
+            if (moves == 0 && Bitboard.legalMoves(opp, own) == 0) {
+                store.markTerminal(node);
+            } else if (store.expand(node, moves)) {
+                node = store.getFirstChild(node) + engine.nextInt(store.getChildCount(node));
+                int square = store.getMove(node);
+                if (square != MCTSNodeStore.PASS) {
+                    long flips = Bitboard.flips(own, opp, square);
+                    own |= flips | Bitboard.bit(square);
+                    opp &= ~flips;
+                }
+                long swap = own;
+                own = opp;
+                opp = swap;
+                path[length++] = node;
+            }
+        }
+        // The result from the point of view of the side to move at the end of the path, which did not
+        // play the last node's move; every level up the point of view changes sides
+        int difference = engine.playout(own, opp);
+        boolean moverWon = difference < 0;
+        boolean moverLost = difference > 0;
+        for (int i = length - 1; i >= 0; i--) {
+            store.update(path[i], moverWon);
+            boolean swap = moverWon;
+            moverWon = moverLost;
+            moverLost = swap;
+        }
+    }
+
+    // The child with the best UCT value for the side that plays it, an unvisited child first
+    private int select(int node) {
+        double logParent = Math.log(Math.max(1, store.getVisits(node)));
+        int first = store.getFirstChild(node);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + store.getChildCount(node); child++) {
+            int visits = store.getVisits(child);
+            if (visits == 0) {
+                return child;
+            }
+            double value = (double) store.getWins(child) / visits
+                    + Constants.EXPLORATION_PARAM * Math.sqrt(logParent / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the tree of the last search, node 0 is the root
+     */
+    public MCTSNodeStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return the number of playouts played since this search was created
+     */
+    public long getPlayouts() {
+        return engine.getPlayouts();
+    }
+}
@@ -8,6 +8,24 @@ package othello.gamelogic;
 public class ComputerPlayer extends Player{
     private AIStrategy theComputerStrategy;
     private String strategy;
+    // Kept across moves so the minimax transposition table survives between turns
+    private Minimax minimax;
+    private int hashSizeMb = Minimax.DEFAULT_HASH_MB;
+    private long moveTimeMillis = Minimax.DEFAULT_MOVE_TIME_MILLIS;
+    private int searchThreads = 1;
+    private int endgameThreshold = EndgameSolver.DEFAULT_THRESHOLD;
+    private int winLossDrawThreshold = EndgameSolver.DEFAULT_WLD_THRESHOLD;
+    private PositionEvaluator evaluator = new SquareWeightEvaluator(PhaseWeights.getDefault());
+    // Kept across moves so the MCTS tree of the previous move is continued from the opponent's reply
+    private MCTS mcts;
+    // Used instead of mcts when MCTS moves run on more than one thread
+    private RootParallelMCTS parallelMcts;
+    // Used instead when the MCTS threads share one tree
+    private TreeParallelMCTS sharedTreeMcts;
+    private int mctsThreads = 1;
+    private boolean mctsSharedTree = false;
+    // Shared by the minimax and MCTS moves so proofs found on one move are reused on the next
+    private ProofNumberSearch proofOracle;
 
     public ComputerPlayer(String strategyName) {
         // PART 2
@@ -62,12 +80,19 @@ public class ComputerPlayer extends Player{
 
     // Changed March's selectedStrategy to computerMove -- only a name change
     // The four-argument version -- convenient for minimax
+    // Searches with iterative deepening until maxDepth is completed or the move time budget runs out
     public BoardSpace computerMove(BoardSpace[][] board, Player self, Player op, int maxDepth) {
         if (this.strategy.equals("minimax")) {
-            Minimax minimax = new Minimax();
-            Node root = new Node();
-            minimax.buildTree(board, self, op,0, root, maxDepth);
-            BoardSpace next = minimax.minimaxStrategyWithMaxDepth(root);
+            if (minimax == null) {
+                minimax = new Minimax(hashSizeMb);
+                minimax.setSearchThreads(searchThreads);
+                minimax.setEndgameThreshold(endgameThreshold);
+                minimax.setWinLossDrawThreshold(winLossDrawThreshold);
+                minimax.setProofNumberSearch(proofOracle);
+                minimax.setEvaluator(evaluator);
+            }
+            SearchResult result = minimax.alphaBetaTimed(board, self, moveTimeMillis, maxDepth);
+            BoardSpace next = result.toBoardSpace(board);
 
             if (next == null) {
                 System.out.println("There is no valid move for the minimax strategy");
@@ -82,10 +107,30 @@ public class ComputerPlayer extends Player{
 
     // Changed March's selectedStrategy to computerMove -- only a name change
     // The five-argument version -- convenient for MCTS
+    // The statistics of the subtree matching the moves played since the last call are reused
     public BoardSpace computerMove(BoardSpace[][] board, Player self, Player op, int maxDepth, int epoch) {
         if (this.strategy.equals("mcts")) {
-            MCTS mcts = new MCTS(epoch, self, op, board);
-            BoardSpace next = mcts.MCTS_Strategy();
+            if (mctsThreads > 1 && mctsSharedTree) {
+                if (sharedTreeMcts == null || sharedTreeMcts.getSelf() != self || sharedTreeMcts.getOp() != op) {
+                    shutdownParallelMcts();
+                    sharedTreeMcts = new TreeParallelMCTS(mctsThreads, self, op, System.nanoTime());
+                    sharedTreeMcts.setProofOracle(proofOracle != null);
+                }
+                return sharedTreeMcts.search(board, epoch * mctsThreads);
+            }
+            if (mctsThreads > 1) {
+                if (parallelMcts == null || parallelMcts.getSelf() != self || parallelMcts.getOp() != op) {
+                    shutdownParallelMcts();
+                    parallelMcts = new RootParallelMCTS(mctsThreads, self, op, System.nanoTime());
+                    parallelMcts.setProofOracle(proofOracle != null);
+                }
+                return parallelMcts.search(board, epoch);
+            }
+            if (mcts == null || mcts.getSelf() != self || mcts.getOp() != op) {
+                mcts = new MCTS(epoch, self, op, board);
+            }
+            mcts.setProver(proofOracle);
+            BoardSpace next = mcts.MCTS_Strategy(board, epoch);
             return next;
         }
         return null;
@@ -103,4 +148,199 @@ public class ComputerPlayer extends Player{
     public String getStrategy() {
         return this.strategy;
     }
+
+    /**
+     * Sets the size of the minimax transposition table, replacing the current table.
+     * @param hashSizeMb the table size in megabytes
+     */
+    public void setHashSizeMb(int hashSizeMb) {
+        if (hashSizeMb < 1) {
+            throw new IllegalArgumentException("Error: Hash size should be at least 1 MB");
+        }
+        this.hashSizeMb = hashSizeMb;
+        if (minimax != null) {
+            minimax.shutdownParallelSearch();
+        }
+        this.minimax = null;
+    }
+
+    public int getHashSizeMb() {
+        return hashSizeMb;
+    }
+
+    /**
+     * Sets the wall-clock budget of a minimax move.
+     * @param moveTimeMillis the time per move in milliseconds
+     */
+    public void setMoveTimeMillis(long moveTimeMillis) {
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    /**
+     * Sets how many threads a minimax move searches with. More than one thread runs a Lazy SMP
+     * search where all threads share the transposition table, and endgames are solved by the
+     * parallel endgame solver.
+     * @param searchThreads the number of threads, at least 1
+     */
+    public void setSearchThreads(int searchThreads) {
+        if (searchThreads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        this.searchThreads = searchThreads;
+        if (minimax != null) {
+            minimax.setSearchThreads(searchThreads);
+        }
+    }
+
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    /**
+     * Sets how many threads an MCTS move searches with. More than one thread grows that many
+     * independent trees, each with the full number of simulations, and plays the move with the
+     * most visits over all of them.
+     * @param mctsThreads the number of threads, at least 1
+     */
+    public void setMCTSThreads(int mctsThreads) {
+        if (mctsThreads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        this.mctsThreads = mctsThreads;
+        shutdownParallelMcts();
+    }
+
+    public int getMCTSThreads() {
+        return mctsThreads;
+    }
+
+    /**
+     * Chooses how several MCTS threads work together. With a shared tree all threads descend one
+     * tree, using virtual loss to spread out, and run epoch simulations each between them; this
+     * grows one deep tree for long analysis searches. Otherwise every thread grows its own tree.
+     * @param sharedTree true for one shared tree, false for one tree per thread
+     */
+    public void setMCTSSharedTree(boolean sharedTree) {
+        this.mctsSharedTree = sharedTree;
+        shutdownParallelMcts();
+    }
+
+    public boolean isMCTSSharedTree() {
+        return mctsSharedTree;
+    }
+
+    // Stops the threads of the parallel searches, new ones are created on the next parallel move
+    private void shutdownParallelMcts() {
+        if (parallelMcts != null) {
+            parallelMcts.shutdown();
+            parallelMcts = null;
+        }
+        if (sharedTreeMcts != null) {
+            sharedTreeMcts.shutdown();
+            sharedTreeMcts = null;
+        }
+    }
+
+    /**
+     * Sets the number of empty squares at or below which a minimax move solves the game exactly
+     * instead of searching with the board weights.
+     * @param endgameThreshold the number of empties, 0 to never solve
+     */
+    public void setEndgameThreshold(int endgameThreshold) {
+        if (endgameThreshold < 0) {
+            throw new IllegalArgumentException("Error: Endgame threshold should not be negative");
+        }
+        this.endgameThreshold = endgameThreshold;
+        if (minimax != null) {
+            minimax.setEndgameThreshold(endgameThreshold);
+        }
+    }
+
+    public int getEndgameThreshold() {
+        return endgameThreshold;
+    }
+
+    /**
+     * Sets the number of empty squares at or below which a minimax move first proves whether the
+     * game is won, drawn or lost, and plays the winning or drawing move it finds. This reaches
+     * perfect play a few empties before an exact solve would. Both thresholds grow with the move
+     * time budget.
+     * @param winLossDrawThreshold the number of empties, 0 to never
+     */
+    public void setWinLossDrawThreshold(int winLossDrawThreshold) {
+        if (winLossDrawThreshold < 0) {
+            throw new IllegalArgumentException("Error: Win/loss/draw threshold should not be negative");
+        }
+        this.winLossDrawThreshold = winLossDrawThreshold;
+        if (minimax != null) {
+            minimax.setWinLossDrawThreshold(winLossDrawThreshold);
+        }
+    }
+
+    public int getWinLossDrawThreshold() {
+        return winLossDrawThreshold;
+    }
+
+    /**
+     * Sets the evaluation a minimax move scores its leaves with, for example a FeatureEvaluator
+     * that weighs stable discs, mobility and frontier discs on top of the board weights.
+     * @param evaluator the leaf evaluation
+     */
+    public void setEvaluator(PositionEvaluator evaluator) {
+        if (evaluator == null) {
+            throw new IllegalArgumentException("Error: Evaluator should not be null");
+        }
+        this.evaluator = evaluator;
+        if (minimax != null) {
+            minimax.setEvaluator(evaluator);
+        }
+    }
+
+    public PositionEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Turns the proof-number search oracle on or off. When on, minimax moves try to prove positions
+     * a few empties before the solver thresholds, and MCTS simulations near the end use proven
+     * results instead of random playouts.
+     * @param enabled true to use the oracle
+     */
+    public void setProofOracle(boolean enabled) {
+        this.proofOracle = enabled ? new ProofNumberSearch() : null;
+        if (parallelMcts != null) {
+            parallelMcts.setProofOracle(enabled);
+        }
+        if (sharedTreeMcts != null) {
+            sharedTreeMcts.setProofOracle(enabled);
+        }
+        if (minimax != null) {
+            minimax.setProofNumberSearch(proofOracle);
+        }
+    }
+
+    /**
+     * @return the proof-number search oracle, null when it is off
+     */
+    public ProofNumberSearch getProofOracle() {
+        return proofOracle;
+    }
+
+    /**
+     * @return the MCTS search used by this player, null until its first single-threaded MCTS move
+     */
+    public MCTS getMCTS() {
+        return mcts;
+    }
+
+    /**
+     * @return the minimax search used by this player, null until its first minimax move
+     */
+    public Minimax getMinimax() {
+        return minimax;
+    }
 }
\ No newline at end of file
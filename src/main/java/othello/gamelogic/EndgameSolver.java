@@ -0,0 +1,488 @@
+package othello.gamelogic;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Exact endgame search: plays every line to the end of the game and scores it by the final disc
+ * difference, so the result is the true value of the position rather than an estimate.
+ * The search works on raw disc masks and is split by the number of empty squares:
+ * <ul>
+ *     <li>deep nodes probe a transposition table and try moves fastest-first, the move that leaves
+ *     the opponent the fewest replies going first;</li>
+ *     <li>middle nodes skip the table and the sorting, which cost more than they save there, and only
+ *     try squares in regions with an odd number of empties first (parity ordering);</li>
+ *     <li>the last four empties are searched without generating moves at all, by trying the flips of
+ *     each remaining square, and the very last empty is scored directly.</li>
+ * </ul>
+ * Scores are from the point of view of the side to move, like the rest of the search code, and
+ * follow AlphaBetaSearch.finalScore in leaving the squares that stay empty to nobody.
+ */
+public class EndgameSolver {
+
+    /**
+     * Default number of empties at or below which the minimax player switches to the solver.
+     * Positions from real games with this many empties are solved in a few hundred milliseconds.
+     */
+    public static final int DEFAULT_THRESHOLD = 18;
+
+    /**
+     * Default number of empties at or below which the minimax player proves the game won, drawn or
+     * lost. A win/loss/draw solve costs about as much as an exact solve with two empties fewer.
+     */
+    public static final int DEFAULT_WLD_THRESHOLD = 20;
+
+    /**
+     * Measured growth of the solve time per extra empty square, used to scale the thresholds
+     * to a time budget.
+     */
+    public static final double BRANCHING_PER_EMPTY = 2.8;
+
+    // Larger than any disc difference
+    static final int INFINITY = 100;
+
+    // How many search calls pass between two checks of the stop condition
+    private static final int STOP_CHECK_MASK = 1023;
+
+    // Below this alpha the stable discs of the opponent almost never prove a node hopeless
+    private static final int STABILITY_CUTOFF_ALPHA = 0;
+
+    // At or below this many empties there is no move generation
+    private static final int SHALLOW_EMPTIES = 4;
+    // At or below this many empties there is no table and no fastest-first sorting
+    private static final int PARITY_EMPTIES = 5;
+
+    // The four 4x4 quadrants, parity is counted separately in each of them
+    private static final long[] QUADRANTS = {
+            0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+    };
+    private static final long CORNERS = 0x8100000000000081L;
+
+    private final TranspositionTable table;
+    // Per-node move lists indexed by the number of empties, so sorting never allocates
+    private final int[][] moveBuffers = new int[65][64];
+    private final long[][] flipBuffers = new long[65][64];
+    private final int[][] keyBuffers = new int[65][64];
+    private long nodes;
+
+    // Lets another thread abandon the search, checked every few thousand nodes
+    private BooleanSupplier stopCondition;
+    private int stopChecks;
+    private boolean stopped;
+
+    public EndgameSolver() {
+        this(new TranspositionTable(Minimax.DEFAULT_HASH_MB));
+    }
+
+    /**
+     * @param table the table to cache exact results in; the solver's scores are disc differences,
+     *              so it must not be shared with the midgame search
+     */
+    public EndgameSolver(TranspositionTable table) {
+        if (table == null) {
+            throw new IllegalArgumentException("Error: The endgame solver needs a transposition table");
+        }
+        this.table = table;
+    }
+
+    /**
+     * Solves a position exactly.
+     * @param position the position to solve, it is not changed
+     * @return the best move, the final disc difference it leads to with best play from both sides,
+     *         the number of empties as depth, and the node count
+     */
+    public SearchResult solve(SearchPosition position) {
+        return solveRoot(position, -INFINITY, INFINITY);
+    }
+
+    /**
+     * Only finds out whether a position is won, drawn or lost, which is much cheaper than the exact
+     * result: with the window (-1, 1) every null-window test is a question of the sign alone, so
+     * lines are cut off as soon as they are known to win instead of once their margin is known.
+     * @param position the position to solve, it is not changed
+     * @return a winning move if there is one, otherwise a drawing move, otherwise some move; the score
+     *         is 1 for a win, 0 for a draw and -1 for a loss
+     */
+    public SearchResult solveWinLossDraw(SearchPosition position) {
+        SearchResult result = solveRoot(position, -1, 1);
+        return new SearchResult(result.getBestMove(), Integer.signum(result.getScore()), result.getDepth(),
+                result.getNodes());
+    }
+
+    /**
+     * Null-window test of a position given as disc masks.
+     * @param player the discs of the side to move
+     * @param opponent the discs of the other side
+     * @param goal the disc difference to test for
+     * @return true if the side to move can end the game at least goal discs ahead
+     */
+    public boolean reaches(long player, long opponent, int goal) {
+        int empties = 64 - Long.bitCount(player | opponent);
+        return search(player, opponent, goal - 1, goal, empties) >= goal;
+    }
+
+    /**
+     * Searches a position given as disc masks within a window, without a root move.
+     * The search stops early, and wasStopped() turns true, once the stop condition holds.
+     * @param player the discs of the side to move
+     * @param opponent the discs of the other side
+     * @return the final disc difference if it lies inside (alpha, beta), otherwise a bound on it
+     */
+    public int searchWindow(long player, long opponent, int alpha, int beta) {
+        nodes = 0;
+        stopped = false;
+        return search(player, opponent, alpha, beta, 64 - Long.bitCount(player | opponent));
+    }
+
+    // The score is exact inside (alpha, beta) and only a bound outside it
+    private SearchResult solveRoot(SearchPosition position, int alpha, int beta) {
+        nodes = 0;
+        stopped = false;
+        table.newSearch();
+        long player = position.getPlayer();
+        long opponent = position.getOpponent();
+        int empties = position.getEmptyCount();
+        nodes++;
+
+        long moves = Bitboard.legalMoves(player, opponent);
+        if (moves == 0) {
+            int score = (Bitboard.legalMoves(opponent, player) == 0)
+                    ? discDifference(player, opponent) : -search(opponent, player, -beta, -alpha, empties);
+            return new SearchResult(SearchPosition.PASS, score, empties, nodes);
+        }
+
+        int count = orderMoves(player, opponent, moves, empties, tableMove(player, opponent, moves));
+        int[] ordered = moveBuffers[empties];
+        long[] flips = flipBuffers[empties];
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = ordered[0];
+        for (int i = 0; i < count; i++) {
+            int square = ordered[i];
+            long flipped = flips[i];
+            long nextPlayer = opponent & ~flipped;
+            long nextOpponent = player | flipped | Bitboard.bit(square);
+            int score;
+            if (i == 0) {
+                score = -search(nextPlayer, nextOpponent, -beta, -alpha, empties - 1);
+            } else {
+                score = -search(nextPlayer, nextOpponent, -alpha - 1, -alpha, empties - 1);
+                if (score > alpha && score < beta) {
+                    score = -search(nextPlayer, nextOpponent, -beta, -alpha, empties - 1);
+                }
+            }
+            if (score > best) {
+                best = score;
+                bestMove = square;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (!stopped) {
+            table.store(key(player, opponent), empties, boundType(best, originalAlpha, beta), best, bestMove);
+        }
+        return new SearchResult(bestMove, best, empties, nodes);
+    }
+
+    // Picks the routine for the number of empties
+    private int search(long player, long opponent, int alpha, int beta, int empties) {
+        if (stopCondition != null && (++stopChecks & STOP_CHECK_MASK) == 0 && stopCondition.getAsBoolean()) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (empties > PARITY_EMPTIES) {
+            return searchDeep(player, opponent, alpha, beta, empties);
+        } else if (empties > SHALLOW_EMPTIES) {
+            return searchParity(player, opponent, alpha, beta, empties);
+        } else if (empties > 1) {
+            return searchShallow(player, opponent, alpha, beta, empties, false);
+        } else if (empties == 1) {
+            return solveLast(player, opponent);
+        }
+        nodes++;
+        return discDifference(player, opponent);
+    }
+
+    // Table probe, fastest-first ordering and null-window tests of every move after the first
+    private int searchDeep(long player, long opponent, int alpha, int beta, int empties) {
+        nodes++;
+        long key = key(player, opponent);
+        long entry = table.probe(key);
+        int hashMove = TranspositionTable.NO_MOVE;
+        if (entry != TranspositionTable.MISS) {
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+            hashMove = TranspositionTable.move(entry);
+        }
+        // The opponent's stable discs cap the result, which settles nodes whose window is out of reach
+        if (alpha >= STABILITY_CUTOFF_ALPHA) {
+            int upper = Stability.upperBound(player, opponent);
+            if (upper <= alpha) {
+                return upper;
+            }
+        }
+
+        long moves = Bitboard.legalMoves(player, opponent);
+        if (moves == 0) {
+            return pass(player, opponent, alpha, beta, empties);
+        }
+
+        int count = orderMoves(player, opponent, moves, empties,
+                (hashMove != TranspositionTable.NO_MOVE && (moves & Bitboard.bit(hashMove)) != 0)
+                        ? hashMove : TranspositionTable.NO_MOVE);
+        int[] ordered = moveBuffers[empties];
+        long[] flips = flipBuffers[empties];
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = ordered[0];
+        for (int i = 0; i < count; i++) {
+            int square = ordered[i];
+            long flipped = flips[i];
+            long nextPlayer = opponent & ~flipped;
+            long nextOpponent = player | flipped | Bitboard.bit(square);
+            int score;
+            if (i == 0) {
+                score = -search(nextPlayer, nextOpponent, -beta, -alpha, empties - 1);
+            } else {
+                score = -search(nextPlayer, nextOpponent, -alpha - 1, -alpha, empties - 1);
+                if (score > alpha && score < beta) {
+                    score = -search(nextPlayer, nextOpponent, -beta, -alpha, empties - 1);
+                }
+            }
+            // An abandoned subtree returns a meaningless score that must not reach the table
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = square;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        table.store(key, empties, boundType(best, originalAlpha, beta), best, bestMove);
+        return best;
+    }
+
+    private static int boundType(int score, int alpha, int beta) {
+        return (score <= alpha) ? TranspositionTable.UPPER
+                : (score >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+    }
+
+    // Move generation with parity ordering only
+    private int searchParity(long player, long opponent, int alpha, int beta, int empties) {
+        nodes++;
+        long moves = Bitboard.legalMoves(player, opponent);
+        if (moves == 0) {
+            return pass(player, opponent, alpha, beta, empties);
+        }
+        long odd = oddRegions(~(player | opponent));
+        int best = -INFINITY;
+        // Odd regions first, then the rest
+        for (int pass = 0; pass < 2; pass++) {
+            for (long group = (pass == 0) ? moves & odd : moves & ~odd; group != 0; group &= group - 1) {
+                int square = Long.numberOfTrailingZeros(group);
+                long flipped = Bitboard.flips(player, opponent, square);
+                int score = -search(opponent & ~flipped, player | flipped | Bitboard.bit(square),
+                        -beta, -Math.max(alpha, best), empties - 1);
+                if (score > best) {
+                    best = score;
+                    if (best >= beta) {
+                        return best;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // The last few empties: every empty square is tried directly instead of generating moves
+    private int searchShallow(long player, long opponent, int alpha, int beta, int empties, boolean passed) {
+        nodes++;
+        long empty = ~(player | opponent);
+        long odd = oddRegions(empty);
+        int best = -INFINITY;
+        for (int pass = 0; pass < 2; pass++) {
+            for (long group = (pass == 0) ? empty & odd : empty & ~odd; group != 0; group &= group - 1) {
+                int square = Long.numberOfTrailingZeros(group);
+                long flipped = Bitboard.flips(player, opponent, square);
+                if (flipped == 0) {
+                    continue;
+                }
+                long nextPlayer = opponent & ~flipped;
+                long nextOpponent = player | flipped | Bitboard.bit(square);
+                int score = (empties == 2)
+                        ? -solveLast(nextPlayer, nextOpponent)
+                        : -searchShallow(nextPlayer, nextOpponent, -beta, -Math.max(alpha, best), empties - 1, false);
+                if (score > best) {
+                    best = score;
+                    if (best >= beta) {
+                        return best;
+                    }
+                }
+            }
+        }
+        if (best != -INFINITY) {
+            return best;
+        }
+        // No move: the game ends if the opponent just passed too, otherwise the opponent moves again
+        if (passed) {
+            return discDifference(player, opponent);
+        }
+        return -searchShallow(opponent, player, -beta, -alpha, empties, true);
+    }
+
+    // One empty square left: whoever can play it does, the side to move first
+    private int solveLast(long player, long opponent) {
+        nodes++;
+        int square = Long.numberOfTrailingZeros(~(player | opponent));
+        int difference = discDifference(player, opponent);
+        long flipped = Bitboard.flips(player, opponent, square);
+        if (flipped != 0) {
+            return difference + 2 * Long.bitCount(flipped) + 1;
+        }
+        flipped = Bitboard.flips(opponent, player, square);
+        if (flipped != 0) {
+            return difference - 2 * Long.bitCount(flipped) - 1;
+        }
+        return difference;
+    }
+
+    // The side to move has no move: the game is over or the opponent moves again
+    private int pass(long player, long opponent, int alpha, int beta, int empties) {
+        if (Bitboard.legalMoves(opponent, player) == 0) {
+            return discDifference(player, opponent);
+        }
+        return -search(opponent, player, -beta, -alpha, empties);
+    }
+
+    /**
+     * Orders the moves of a position like the deep search does and copies them out, for callers
+     * that search the children themselves.
+     * @param squares receives the squares in search order
+     * @param flips receives the discs each of those moves flips
+     * @return the number of moves written
+     */
+    int orderMoves(long player, long opponent, long moves, int hashMove, int[] squares, long[] flips) {
+        int empties = 64 - Long.bitCount(player | opponent);
+        int count = orderMoves(player, opponent, moves, empties, hashMove);
+        System.arraycopy(moveBuffers[empties], 0, squares, 0, count);
+        System.arraycopy(flipBuffers[empties], 0, flips, 0, count);
+        return count;
+    }
+
+    // Sorts the moves into the buffers of this empty count, hash move first, then fewest opponent replies
+    private int orderMoves(long player, long opponent, long moves, int empties, int hashMove) {
+        int[] ordered = moveBuffers[empties];
+        long[] flips = flipBuffers[empties];
+        int[] keys = keyBuffers[empties];
+        long odd = oddRegions(~(player | opponent));
+        int count = 0;
+        for (long rest = moves; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            long placed = Bitboard.bit(square);
+            long flipped = Bitboard.flips(player, opponent, square);
+            int key;
+            if (square == hashMove) {
+                key = Integer.MIN_VALUE;
+            } else {
+                long nextPlayer = opponent & ~flipped;
+                long nextOpponent = player | flipped | placed;
+                long replies = Bitboard.legalMoves(nextPlayer, nextOpponent);
+                key = (Long.bitCount(replies) + Long.bitCount(replies & CORNERS)) * 16
+                        + Long.bitCount(Bitboard.neighbours(nextOpponent) & ~(nextPlayer | nextOpponent));
+                if ((placed & CORNERS) != 0) {
+                    key -= 12;
+                }
+                if ((placed & odd) != 0) {
+                    key -= 4;
+                }
+            }
+            // Insertion sort, the lists are short
+            int i = count++;
+            while (i > 0 && keys[i - 1] > key) {
+                ordered[i] = ordered[i - 1];
+                flips[i] = flips[i - 1];
+                keys[i] = keys[i - 1];
+                i--;
+            }
+            ordered[i] = square;
+            flips[i] = flipped;
+            keys[i] = key;
+        }
+        return count;
+    }
+
+    // The stored best move for a position if it is one of the given legal moves
+    private int tableMove(long player, long opponent, long moves) {
+        long entry = table.probe(key(player, opponent));
+        int move = (entry == TranspositionTable.MISS) ? TranspositionTable.NO_MOVE : TranspositionTable.move(entry);
+        return (move != TranspositionTable.NO_MOVE && (moves & Bitboard.bit(move)) != 0)
+                ? move : TranspositionTable.NO_MOVE;
+    }
+
+    // The empty squares that lie in a quadrant with an odd number of empties
+    private static long oddRegions(long empty) {
+        long odd = 0;
+        for (long quadrant : QUADRANTS) {
+            if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                odd |= quadrant;
+            }
+        }
+        return odd & empty;
+    }
+
+    private static int discDifference(long player, long opponent) {
+        return Long.bitCount(player) - Long.bitCount(opponent);
+    }
+
+    // Table key of a position from the mover's discs, cheaper than a Zobrist hash and enough here
+    // because the score depends only on whose discs are whose, not on the color to move
+    static long key(long player, long opponent) {
+        long key = player * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent * 0xC2B2AE3D27D4EB4FL, 31);
+        return key ^ (key >>> 29);
+    }
+
+    /**
+     * Sets a condition that stops the search once it holds, for example a cancelled parallel task.
+     * @param stopCondition checked every few thousand nodes, or null to never stop early
+     */
+    public void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * @return true if the last search was abandoned because the stop condition held
+     */
+    public boolean wasStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the table the solver caches its results in
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * @return the number of positions visited by the last solve
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,67 @@
+package othello.gamelogic;
+
+/**
+ * Evaluates a position by the square weights plus features that tell a safe disc from a
+ * weak one, all counted with popcounts on the disc masks:
+ * <ul>
+ *     <li>stability: discs that can never be flipped again, see Stability;</li>
+ *     <li>mobility: the number of legal moves;</li>
+ *     <li>potential mobility: the empty squares next to opponent discs, where moves may appear;</li>
+ *     <li>frontier: own discs next to an empty square, which give the opponent moves.</li>
+ * </ul>
+ * Each feature is the difference between the side to move and the opponent, times its weight.
+ */
+public class FeatureEvaluator implements PositionEvaluator {
+
+    /** Default weight of one stable disc. */
+    public static final int DEFAULT_STABILITY_WEIGHT = 30;
+    /** Default weight of one legal move. */
+    public static final int DEFAULT_MOBILITY_WEIGHT = 15;
+    /** Default weight of one empty square next to an opponent disc. */
+    public static final int DEFAULT_POTENTIAL_MOBILITY_WEIGHT = 5;
+    /** Default weight of one frontier disc, counted against its owner. */
+    public static final int DEFAULT_FRONTIER_WEIGHT = 5;
+
+    private final SquareWeightEvaluator squareWeights = new SquareWeightEvaluator();
+    private final int stabilityWeight;
+    private final int mobilityWeight;
+    private final int potentialMobilityWeight;
+    private final int frontierWeight;
+
+    public FeatureEvaluator() {
+        this(DEFAULT_STABILITY_WEIGHT, DEFAULT_MOBILITY_WEIGHT, DEFAULT_POTENTIAL_MOBILITY_WEIGHT,
+                DEFAULT_FRONTIER_WEIGHT);
+    }
+
+    /**
+     * @param stabilityWeight the weight of one stable disc
+     * @param mobilityWeight the weight of one legal move
+     * @param potentialMobilityWeight the weight of one empty square next to an opponent disc
+     * @param frontierWeight the weight of one frontier disc, subtracted for its owner
+     */
+    public FeatureEvaluator(int stabilityWeight, int mobilityWeight, int potentialMobilityWeight, int frontierWeight) {
+        this.stabilityWeight = stabilityWeight;
+        this.mobilityWeight = mobilityWeight;
+        this.potentialMobilityWeight = potentialMobilityWeight;
+        this.frontierWeight = frontierWeight;
+    }
+
+    @Override
+    public int evaluate(SearchPosition position) {
+        long player = position.getPlayer();
+        long opponent = position.getOpponent();
+        long empty = ~(player | opponent);
+        long nearEmpty = Bitboard.neighbours(empty);
+
+        int stability = Long.bitCount(Stability.stableDiscs(player, opponent))
+                - Long.bitCount(Stability.stableDiscs(opponent, player));
+        int mobility = Long.bitCount(Bitboard.legalMoves(player, opponent))
+                - Long.bitCount(Bitboard.legalMoves(opponent, player));
+        int potentialMobility = Long.bitCount(Bitboard.neighbours(opponent) & empty)
+                - Long.bitCount(Bitboard.neighbours(player) & empty);
+        int frontier = Long.bitCount(player & nearEmpty) - Long.bitCount(opponent & nearEmpty);
+
+        return squareWeights.evaluate(position) + stabilityWeight * stability + mobilityWeight * mobility
+                + potentialMobilityWeight * potentialMobility - frontierWeight * frontier;
+    }
+}
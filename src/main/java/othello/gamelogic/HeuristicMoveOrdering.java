@@ -0,0 +1,113 @@
+package othello.gamelogic;
+
+import othello.Constants;
+
+/**
+ * Orders moves by, in priority order: the transposition table's best move, the two killer
+ * moves of the ply (recent cutoff moves of sibling nodes), then the history table (how often a
+ * square caused cutoffs, weighted by depth) with the static square value from
+ * Constants.BOARD_WEIGHTS breaking ties between squares with little history.
+ */
+public class HeuristicMoveOrdering implements MoveOrdering {
+
+    private static final int MAX_PLY = 128;
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 29;
+    // History is kept below this so it can never outrank a killer
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    private final boolean useHashMove;
+    private final boolean useKillers;
+    private final boolean useHistory;
+
+    private final int[] squareValues = new int[64];
+    private final int[][] killers = new int[MAX_PLY][2];
+    // Indexed by side to move (0 black, 1 white) and square
+    private final int[][] history = new int[2][64];
+    private final int[] scores = new int[64];
+
+    public HeuristicMoveOrdering() {
+        this(true, true, true);
+    }
+
+    /**
+     * Creates an ordering with only some of the heuristics, for comparing their effect.
+     * The static square values are always used.
+     */
+    public HeuristicMoveOrdering(boolean useHashMove, boolean useKillers, boolean useHistory) {
+        this.useHashMove = useHashMove;
+        this.useKillers = useKillers;
+        this.useHistory = useHistory;
+        for (int square = 0; square < 64; square++) {
+            squareValues[square] = Constants.BOARD_WEIGHTS[Bitboard.getX(square)][Bitboard.getY(square)];
+        }
+        clearKillers();
+    }
+
+    @Override
+    public int orderMoves(SearchPosition position, long moves, int ply, int hashMove, int[] out) {
+        int side = position.isBlackToMove() ? 0 : 1;
+        int[] plyKillers = killers[Math.min(ply, MAX_PLY - 1)];
+        int count = 0;
+        for (long rest = moves; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            int score = squareValues[square];
+            if (useHistory) {
+                score += history[side][square];
+            }
+            if (useHashMove && square == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (useKillers && square == plyKillers[0]) {
+                score = KILLER_SCORE + 1;
+            } else if (useKillers && square == plyKillers[1]) {
+                score = KILLER_SCORE;
+            }
+            // Insertion sort, highest score first; a node rarely has more than a dozen moves
+            int i = count++;
+            while (i > 0 && scores[i - 1] < score) {
+                scores[i] = scores[i - 1];
+                out[i] = out[i - 1];
+                i--;
+            }
+            scores[i] = score;
+            out[i] = square;
+        }
+        return count;
+    }
+
+    @Override
+    public void recordCutoff(SearchPosition position, int move, int ply, int depth) {
+        int[] plyKillers = killers[Math.min(ply, MAX_PLY - 1)];
+        if (plyKillers[0] != move) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        int[] sideHistory = history[position.isBlackToMove() ? 0 : 1];
+        sideHistory[move] += depth * depth;
+        if (sideHistory[move] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    @Override
+    public void newSearch() {
+        clearKillers();
+        ageHistory();
+    }
+
+    private void clearKillers() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = TranspositionTable.NO_MOVE;
+            plyKillers[1] = TranspositionTable.NO_MOVE;
+        }
+    }
+
+    // Halving keeps what was learned while letting newer cutoffs take over
+    private void ageHistory() {
+        for (int[] sideHistory : history) {
+            for (int square = 0; square < 64; square++) {
+                sideHistory[square] >>= 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package othello.gamelogic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Parallel alpha-beta search in the Lazy SMP style.
+ * The calling thread runs a normal iterative deepening search while helper threads search the
+ * same root on their own copies of the position. The threads never talk to each other except
+ * through the shared transposition table: helpers fill it with results that the main thread
+ * then cuts off on, which is what makes the main thread reach each depth sooner.
+ * Every second helper searches one ply deeper than its iteration so the threads spread over
+ * different parts of the tree instead of repeating the same work.
+ * The table is written without locks; a slot torn by two writers fails its key check, and its
+ * statistics counters are only approximate while several threads use it.
+ */
+public class LazySmpSearch {
+
+    private final int threads;
+    private final TranspositionTable table;
+    private final AlphaBetaSearch mainSearch;
+    private final AlphaBetaSearch[] helpers;
+    private final ExecutorService pool;
+
+    /**
+     * @param threads the total number of searching threads, including the calling thread
+     * @param table the transposition table shared by all threads
+     */
+    public LazySmpSearch(int threads, TranspositionTable table) {
+        this(threads, table, new SquareWeightEvaluator());
+    }
+
+    /**
+     * @param threads the total number of searching threads, including the calling thread
+     * @param table the transposition table shared by all threads
+     * @param evaluator the leaf evaluation of every thread, it must be safe to call from several threads
+     */
+    public LazySmpSearch(int threads, TranspositionTable table, PositionEvaluator evaluator) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        if (table == null) {
+            throw new IllegalArgumentException("Error: Lazy SMP needs a transposition table to share");
+        }
+        this.threads = threads;
+        this.table = table;
+        this.mainSearch = new AlphaBetaSearch(evaluator);
+        mainSearch.setTranspositionTable(table);
+        this.helpers = new AlphaBetaSearch[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new AlphaBetaSearch(evaluator);
+            helpers[i].setTranspositionTable(table);
+            helpers[i].setDepthOffset((i + 1) % 2);
+        }
+        // Daemon threads so an idle pool never keeps the game from exiting
+        this.pool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, runnable -> {
+            Thread thread = new Thread(runnable, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches with iterative deepening on all threads until the main thread completes maxDepth
+     * or runs out of time, then stops the helpers.
+     * @param position the position to search, it is restored before returning
+     * @param budgetMillis the wall-clock time allowed for this move
+     * @param maxDepth the deepest iteration to start
+     * @return the main thread's result, with the nodes of every thread
+     */
+    public SearchResult searchTimed(SearchPosition position, long budgetMillis, int maxDepth) {
+        AtomicBoolean stopSignal = new AtomicBoolean();
+        List<Future<SearchResult>> running = new ArrayList<>();
+        for (AlphaBetaSearch helper : helpers) {
+            SearchPosition copy = new SearchPosition(position.toBitboard());
+            helper.setStopSignal(stopSignal);
+            running.add(pool.submit(() -> helper.searchTimed(copy, budgetMillis, maxDepth)));
+        }
+
+        SearchResult result;
+        try {
+            result = mainSearch.searchTimed(position, budgetMillis, maxDepth);
+        } finally {
+            stopSignal.set(true);
+        }
+
+        long nodes = result.getNodes();
+        for (Future<SearchResult> helper : running) {
+            nodes += waitFor(helper).getNodes();
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                result.getPrincipalVariation());
+    }
+
+    private static SearchResult waitFor(Future<SearchResult> helper) {
+        try {
+            return helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Error: Interrupted while stopping a helper search", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error: Helper search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the helper threads. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+}
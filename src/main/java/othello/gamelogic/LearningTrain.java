@@ -60,9 +60,11 @@ public class LearningTrain {
             }
 
             if (moveChosen != null) {
-                othelloGame.getBoard()[moveChosen.getX()][moveChosen.getY()].setType(thisPlayer.getColor());
-                thisPlayer.getPlayerOwnedSpacesSpaces().add(othelloGame.getBoard()[moveChosen.getX()]
-                        [moveChosen.getY()]);
+                // Place the disc through takeSpace so the game's hash stays in sync
+                othelloGame.takeSpace(thisPlayer,
+                        (thisPlayer == othelloGame.getPlayerOne()) ?
+                                othelloGame.getPlayerTwo() : othelloGame.getPlayerOne(),
+                        moveChosen.getX(), moveChosen.getY());
 
                 // Obtain a copy of the board
                 BoardSpace[][] priorToConversion = getCopy(othelloGame.getBoard());
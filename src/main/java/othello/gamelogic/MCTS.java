@@ -22,6 +22,27 @@ public class MCTS implements AIStrategy {
 
     private BoardSpace[][] board;
 
+    //Node budget of one oracle call, kept small because it runs once per simulation
+    public static final int ORACLE_NODE_BUDGET = 1000;
+
+    //Proves positions near the end instead of playing them out at random, null to always play out
+    private ProofNumberSearch prover;
+
+    //At or below this many empty squares a simulation asks the prover first
+    private int oracleEmpties = ProofNumberSearch.DEFAULT_ORACLE_EMPTIES;
+
+    //The subtree of the move played last, kept so the next search continues from the opponent's reply
+    private MCTSNode root;
+
+    //Simulations the last search inherited from the previous one, 0 when it started from a fresh root
+    private int reusedSimulations;
+
+    //Random source of expansion and simulation, each MCTS has its own so parallel searches never share one
+    private Random random = new Random();
+
+    //Plays the random games of the simulations on disc masks, seeded from random
+    private PlayoutEngine playouts = new PlayoutEngine(random.nextLong());
+
 
     public static void main(String[] args) {
 //        int times = 1000;
@@ -59,10 +80,37 @@ public class MCTS implements AIStrategy {
     }
 
     //Implement the MCTS with four steps during the given iterations
+    //The search continues from the subtree of the previous move when the board is one of its replies
     public BoardSpace MCTS_Strategy() {
-        //Everytime, we need a default root
-        MCTSNode root = new MCTSNode();
-        root.setBoard(this.board);
+        MCTSNode root = search();
+        int max_N = Integer.MIN_VALUE;
+        MCTSNode max_node = null;
+        //Choose the node with max N, which is the optimal next step
+        for (int i = 0; i < root.getMctsChildren().size(); i++) {
+            if (root.getMctsChildren().get(i).getTotalSimulations() >= max_N) {
+                max_N = root.getMctsChildren().get(i).getTotalSimulations();
+                max_node = root.getMctsChildren().get(i);
+            }
+        }
+        //Prints the number of wins versus number of total simulations for testing
+        for (MCTSNode i : root.getMctsChildren()) {
+            System.out.println("Number of wins: " + i.getNumberOfWin() + " " + "Number of total simulation: " + i.getTotalSimulations());
+        }
+        if (max_node == null) {
+            this.root = null;
+            return null;
+        }
+        BoardSpace next_step = max_node.getSpace();
+        keepSubtree(Bitboard.square(next_step.getX(), next_step.getY()));
+        //A reused root holds its own copy of the board, so return the space of the board that was passed in
+        return this.board[next_step.getX()][next_step.getY()];
+    }
+
+    //Run the iterations from the root of the current board and return that root without choosing a move
+    //The root is kept so keepSubtree can continue from the move that is played
+    public MCTSNode search() {
+        MCTSNode root = reuseRoot(this.board);
+        this.root = root;
         //Based on the iterations, repeat four steps
         while (times >= 0) {
             MCTSNode next_node = select(root);
@@ -75,21 +123,92 @@ public class MCTS implements AIStrategy {
             backpropagation(simulate_node, simulation_result);
             times--;
         }
-        int max_N = Integer.MIN_VALUE;
-        MCTSNode max_node = null;
-        //Choose the node with max N, which is the optimal next step
-        for (int i = 0; i < root.getMctsChildren().size(); i++) {
-            if (root.getMctsChildren().get(i).getTotalSimulations() >= max_N) {
-                max_N = root.getMctsChildren().get(i).getTotalSimulations();
-                max_node = root.getMctsChildren().get(i);
+        return root;
+    }
+
+    //Search the given board with the given number of iterations and return its root, see search()
+    public MCTSNode search(BoardSpace[][] board, int runTimes) {
+        this.board = board;
+        this.times = runTimes;
+        return search();
+    }
+
+    //Keep only the subtree of the move played from the last searched root, the other moves and the root are dropped
+    public void keepSubtree(int square) {
+        MCTSNode played = null;
+        if (root != null) {
+            for (MCTSNode child : root.getMctsChildren()) {
+                if (Bitboard.square(child.getSpace().getX(), child.getSpace().getY()) == square) {
+                    played = child;
+                }
             }
         }
-        BoardSpace next_step = max_node.getSpace();
-        //Prints the number of wins versus number of total simulations for testing
-        for (MCTSNode i : root.getMctsChildren()) {
-            System.out.println("Number of wins: " + i.getNumberOfWin() + " " + "Number of total simulation: " + i.getTotalSimulations());
+        if (played != null) {
+            played.setParent(null);
+        }
+        this.root = played;
+    }
+
+    //Search the given board with the given number of iterations, continuing from the previous tree if it matches
+    //Para: current board state, epoch times
+    public BoardSpace MCTS_Strategy(BoardSpace[][] board, int runTimes) {
+        this.board = board;
+        this.times = runTimes;
+        return MCTS_Strategy();
+    }
+
+    //This method finds the node of the previous tree whose board is the given one after the opponent's reply
+    //That node becomes the root with its statistics, otherwise a fresh root is made for the board
+    private MCTSNode reuseRoot(BoardSpace[][] board) {
+        reusedSimulations = 0;
+        if (root != null) {
+            long black = Bitboard.maskOf(board, BoardSpace.SpaceType.BLACK);
+            long white = Bitboard.maskOf(board, BoardSpace.SpaceType.WHITE);
+            for (MCTSNode reply : root.getMctsChildren()) {
+                //Only a node where self is to move can be a root, which is an even depth
+                if (reply.getDepth() % 2 == 0
+                        && Bitboard.maskOf(reply.getBoard(), BoardSpace.SpaceType.BLACK) == black
+                        && Bitboard.maskOf(reply.getBoard(), BoardSpace.SpaceType.WHITE) == white) {
+                    reply.setParent(null);
+                    reusedSimulations = reply.getTotalSimulations();
+                    return reply;
+                }
+            }
         }
-        return next_step;
+        MCTSNode fresh = new MCTSNode();
+        fresh.setBoard(board);
+        return fresh;
+    }
+
+    //Return the number of simulations the last search inherited from the previous move
+    public int getReusedSimulations() {
+        return this.reusedSimulations;
+    }
+
+    //Set the random source of expansion and simulation, for example a seeded one for each parallel worker
+    public void setRandom(Random random) {
+        this.random = random;
+        this.playouts = new PlayoutEngine(random.nextLong());
+    }
+
+    //Return the engine that plays out the simulations, its counter shows how many were played
+    public PlayoutEngine getPlayoutEngine() {
+        return this.playouts;
+    }
+
+    //Drop the kept tree, the next search starts from a fresh root
+    public void clearTree() {
+        this.root = null;
+    }
+
+    //Return the self player the simulations are counted for
+    public Player getSelf() {
+        return this.self;
+    }
+
+    //Return the opponent player
+    public Player getOp() {
+        return this.op;
     }
 
     //UCT Formula and return the result of every node based on formula
@@ -130,37 +249,38 @@ public class MCTS implements AIStrategy {
     //2. This is the second step to expand a leaf node that been selected
     public MCTSNode expansion(MCTSNode node, BoardSpace[][] board) {
         if (!node.getMctsChildren().isEmpty()) {
-            Random random = new Random();
             MCTSNode random_node = node.getMctsChildren().get(random.nextInt(0, node.getMctsChildren().size()));
             return random_node;
         }
         //This is to distinguish the self node vs opponent node
         if (node.getDepth() % 2 == 0) {
             //This is the self node
-            Map<BoardSpace, List<BoardSpace>> move = self.getAvailableMoves(board);
-            if (move.isEmpty()) {
+            long move = self.getAvailableMoveMask(board);
+            if (move == 0) {
                 return node;
             }
-            for (BoardSpace i : move.keySet()) {
+            for (long rest = move; rest != 0; rest &= rest - 1) {
+                int square = Long.numberOfTrailingZeros(rest);
                 MCTSNode temp = new MCTSNode();
                 temp.setParent(node);
-                temp.setBoard(futureBoard(board, i, move, self));
+                temp.setBoard(futureBoard(board, square, self));
                 temp.setDepth(node.getDepth() + 1);
-                temp.setSpace(i);
+                temp.setSpace(board[Bitboard.getX(square)][Bitboard.getY(square)]);
                 node.getMctsChildren().add(temp);
             }
         } else {
             //This is the opponent node
-            Map<BoardSpace, List<BoardSpace>> move = op.getAvailableMoves(board);
-            for (BoardSpace i : move.keySet()) {
-                if (move.isEmpty()) {
-                    return node;
-                }
+            long move = op.getAvailableMoveMask(board);
+            if (move == 0) {
+                return node;
+            }
+            for (long rest = move; rest != 0; rest &= rest - 1) {
+                int square = Long.numberOfTrailingZeros(rest);
                 MCTSNode temp = new MCTSNode();
                 temp.setParent(node);
-                temp.setBoard(futureBoard(board, i, move, op));
+                temp.setBoard(futureBoard(board, square, op));
                 temp.setDepth(node.getDepth() + 1);
-                temp.setSpace(i);
+                temp.setSpace(board[Bitboard.getX(square)][Bitboard.getY(square)]);
                 node.getMctsChildren().add(temp);
             }
         }
@@ -168,7 +288,6 @@ public class MCTS implements AIStrategy {
             return node;
         }
         //After expanded all the possible moves, we randomly choose the next step
-        Random random = new Random();
         MCTSNode random_node = node.getMctsChildren().get(random.nextInt(0, node.getMctsChildren().size()));
         return random_node;
     }
@@ -180,50 +299,46 @@ public class MCTS implements AIStrategy {
         if (node.getDepth() % 2 == 0) {
             self_turn = true;
         }
-        //Loop until the game ends
-        while (!self.getAvailableMoves(cur_board).isEmpty() && !op.getAvailableMoves(cur_board).isEmpty()) {
-            if (self_turn) {
-                Map<BoardSpace, List<BoardSpace>> move = self.getAvailableMoves(cur_board);
-                Random random = new Random();
-                int random_num = random.nextInt(0, move.size());
-                int counter = 0;
-                BoardSpace next_space = null;
-                for (BoardSpace i : move.keySet()) {
-                    if (counter == random_num) {
-                        next_space = i;
-                        break;
-                    }
-                    counter++;
-                }
-                cur_board = futureBoard(cur_board, next_space, move, self);
-                self_turn = false;
-            } else {
-                Map<BoardSpace, List<BoardSpace>> move = op.getAvailableMoves(cur_board);
-                Random random = new Random();
-                int random_num = random.nextInt(0, move.size());
-                int counter = 0;
-                BoardSpace next_space = null;
-                for (BoardSpace i : move.keySet()) {
-                    if (counter == random_num) {
-                        next_space = i;
-                        break;
-                    }
-                    counter++;
-                }
-                cur_board = futureBoard(cur_board, next_space, move, op);
-                self_turn = true;
+        //A proven result is exact, so it replaces the random playout
+        if (prover != null) {
+            int proven = prove(cur_board, self_turn);
+            if (proven != ProofNumberSearch.UNKNOWN) {
+                return self_turn ? proven == ProofNumberSearch.WIN : proven == ProofNumberSearch.LOSS;
             }
-            //System.out.println(cur_board);
         }
-        int self_spaces = countSpaces(cur_board, self.getColor());
-        int op_spaces = countSpaces(cur_board, op.getColor());
+        //Play the rest of the game on disc masks, without copying the board on every move
+        long self_discs = Bitboard.maskOf(cur_board, self.getColor());
+        long op_discs = Bitboard.maskOf(cur_board, op.getColor());
+        int difference = self_turn ? playouts.playout(self_discs, op_discs) : -playouts.playout(op_discs, self_discs);
         //Use more advanced strategy to consider tie to be loss
         //This will avoid some defensive operations to be not strong
-        if (self_spaces > op_spaces) {
-            //System.out.println(self_spaces + " " + op_spaces + " " + cur_board);
-            return true;
+        return difference > 0;
+    }
+
+    //This method asks the prover for the result of the board from the side to move's point of view
+    //Return UNKNOWN when the board has too many empty squares or the budget runs out
+    public int prove(BoardSpace[][] board, boolean self_turn) {
+        Player toMove = self_turn ? self : op;
+        SearchPosition position = SearchPosition.fromBoardSpaces(board, toMove.getColor());
+        if (position.getEmptyCount() > oracleEmpties) {
+            return ProofNumberSearch.UNKNOWN;
         }
-        return false;
+        return prover.prove(position, ORACLE_NODE_BUDGET);
+    }
+
+    //Set the proof-number search used as a terminal-position oracle during simulation, null for none
+    public void setProver(ProofNumberSearch prover) {
+        this.prover = prover;
+    }
+
+    //Return the proof-number search oracle, null if there is none
+    public ProofNumberSearch getProver() {
+        return this.prover;
+    }
+
+    //Set the number of empty squares at or below which simulations ask the prover
+    public void setOracleEmpties(int oracleEmpties) {
+        this.oracleEmpties = oracleEmpties;
     }
 
     //This method is for counting the number of spaces for each player(color)
@@ -268,29 +383,33 @@ public class MCTS implements AIStrategy {
             System.out.println("Error: Null");
             return null;
         }
-        //This method is based on Owen's takeSpaces() method by adding some modification
+        //The squares from each origin to the destination come from a precomputed table instead of a walk
+        int target = Bitboard.square(destination.getX(), destination.getY());
+        long taken = Bitboard.bit(target);
         for (BoardSpace eachOrigin : theOrigins) {
-            // First find the direction to the destination
-            int rowChange = Integer.compare(destination.getX(), eachOrigin.getX());
-            int columnChange = Integer.compare(destination.getY(), eachOrigin.getY());
-            // Then actually take the steps
-            int newRow = eachOrigin.getX();
-            int newColumn = eachOrigin.getY();
-            while (true) {
-                //Take space for each boardspace
-                BoardSpace thePosition = copyBoard[newRow][newColumn];
-                // If already reached the destination, break
-                if (thePosition.getType() != pc.getColor()) {
-                    thePosition.setType(pc.getColor());
-                }
-                if (newRow == destination.getX() &&
-                        newColumn == destination.getY()) {
-                    break;
-                }
-                // Else, continue moving in that direction towards the destination
-                newRow += rowChange;
-                newColumn += columnChange;
-            }
+            int origin = Bitboard.square(eachOrigin.getX(), eachOrigin.getY());
+            taken |= Bitboard.bit(origin) | Bitboard.between(origin, target);
+        }
+        for (long rest = taken; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            copyBoard[Bitboard.getX(square)][Bitboard.getY(square)].setType(pc.getColor());
+        }
+        return copyBoard;
+    }
+
+    //This method is the mask-based version of futureBoard, which computes the flips on demand from the square
+    public BoardSpace[][] futureBoard(BoardSpace[][] board, int square, Player pc) {
+        long flips = pc.getFlips(board, square);
+        //If placing on the square flips nothing, it is not a valid move
+        if (flips == 0) {
+            System.out.println("Error: Null");
+            return null;
+        }
+        BoardSpace[][] copyBoard = getCopyBoard(board);
+        copyBoard[Bitboard.getX(square)][Bitboard.getY(square)].setType(pc.getColor());
+        for (long rest = flips; rest != 0; rest &= rest - 1) {
+            int flipped = Long.numberOfTrailingZeros(rest);
+            copyBoard[Bitboard.getX(flipped)][Bitboard.getY(flipped)].setType(pc.getColor());
         }
         return copyBoard;
     }
@@ -6,16 +6,35 @@
 package othello.gamelogic;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public class MCTSNode {
+    //Atomic updaters of the counters, so threads sharing one tree can update a node without a lock
+    private static final AtomicIntegerFieldUpdater<MCTSNode> WINS =
+            AtomicIntegerFieldUpdater.newUpdater(MCTSNode.class, "numberOfWin");
+    private static final AtomicIntegerFieldUpdater<MCTSNode> SIMULATIONS =
+            AtomicIntegerFieldUpdater.newUpdater(MCTSNode.class, "totalSimulations");
+    private static final AtomicIntegerFieldUpdater<MCTSNode> VIRTUAL_LOSS =
+            AtomicIntegerFieldUpdater.newUpdater(MCTSNode.class, "virtualLoss");
+    private static final AtomicIntegerFieldUpdater<MCTSNode> EXPANSION =
+            AtomicIntegerFieldUpdater.newUpdater(MCTSNode.class, "expansion");
+
+    //Expansion states of a node shared between threads
+    private static final int NOT_EXPANDED = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+
     private BoardSpace space;
     private BoardSpace[][] board;
-    private int numberOfWin;
-    private int totalSimulations;
+    private volatile int numberOfWin;
+    private volatile int totalSimulations;
+    //Simulations in flight through this node, counted as losses so other threads pick other paths
+    private volatile int virtualLoss;
+    private volatile int expansion = NOT_EXPANDED;
     private int parentTotalSimulation;
     private MCTSNode parent;
     private boolean isLeaf = false;
-    private ArrayList<MCTSNode> mctsChildren = new ArrayList<>();
+    private volatile ArrayList<MCTSNode> mctsChildren = new ArrayList<>();
     private int depth;
 
 
@@ -108,4 +127,39 @@ public class MCTSNode {
     public BoardSpace getSpace() {
         return this.space;
     }
-}
\ No newline at end of file
+
+    //Add the result of one simulation atomically, safe when several threads update the node at once
+    public void addSimulation(boolean win) {
+        if (win) {
+            WINS.incrementAndGet(this);
+        }
+        SIMULATIONS.incrementAndGet(this);
+    }
+
+    //Add virtual loss when a simulation passes through the node, a negative amount takes it back
+    public void addVirtualLoss(int amount) {
+        VIRTUAL_LOSS.addAndGet(this, amount);
+    }
+
+    //Return the virtual loss of the simulations that are passing through the node
+    public int getVirtualLoss() {
+        return this.virtualLoss;
+    }
+
+    //Claim the expansion of this node, exactly one of the threads that call this gets true
+    public boolean tryStartExpansion() {
+        return EXPANSION.compareAndSet(this, NOT_EXPANDED, EXPANDING);
+    }
+
+    //Publish the children made by the thread that claimed the expansion
+    //Other threads see either no children or all of them, never a list that is being filled
+    public void finishExpansion(ArrayList<MCTSNode> children) {
+        this.mctsChildren = children;
+        this.expansion = EXPANDED;
+    }
+
+    //Return true once the children made by finishExpansion are visible
+    public boolean isExpanded() {
+        return this.expansion == EXPANDED;
+    }
+}
@@ -0,0 +1,158 @@
+package othello.gamelogic;
+
+/**
+ * A Monte Carlo search tree kept as parallel primitive arrays instead of MCTSNode objects. A node
+ * is an index into the arrays; the children of a node are allocated together in one contiguous
+ * block, so a node only needs the index of its first child and their count. Nodes store the move
+ * that leads to them and no board: a search recomputes the board by replaying the moves from the
+ * root on disc masks as it descends.
+ * <p>
+ * A node costs BYTES_PER_NODE bytes (a byte for the move, ints for the visits, the wins and the
+ * first child, and a byte for the child count) against an MCTSNode with its own BoardSpace board,
+ * which takes kilobytes. The arrays are allocated once for the full capacity and the tree is
+ * cleared by resetting a counter, so a search never allocates.
+ */
+public final class MCTSNodeStore {
+
+    /** Move of a node reached by passing. */
+    public static final int PASS = 64;
+
+    /** First child of a node whose children have not been made yet. */
+    public static final int NOT_EXPANDED = -1;
+
+    /** Bytes of array storage per node. */
+    public static final int BYTES_PER_NODE = 1 + 4 + 4 + 4 + 1;
+
+    private final byte[] move;
+    private final int[] visits;
+    // wins[node] counts the playouts won by the side that played the node's move
+    private final int[] wins;
+    private final int[] firstChild;
+    private final byte[] childCount;
+    private int size;
+
+    /**
+     * @param capacity the most nodes the tree can hold, the root included
+     */
+    public MCTSNodeStore(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Error: Capacity should be at least 1");
+        }
+        move = new byte[capacity];
+        visits = new int[capacity];
+        wins = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new byte[capacity];
+        clear();
+    }
+
+    /**
+     * Drops every node and makes a new unexpanded root at index 0.
+     */
+    public void clear() {
+        size = 0;
+        init(0, PASS);
+        size = 1;
+    }
+
+    private void init(int node, int square) {
+        move[node] = (byte) square;
+        visits[node] = 0;
+        wins[node] = 0;
+        firstChild[node] = NOT_EXPANDED;
+        childCount[node] = 0;
+    }
+
+    /**
+     * Makes one child per move in a contiguous block, or a single pass child when moves is 0.
+     * @param node the node to expand
+     * @param moves the legal moves of the side to move at the node
+     * @return false if the store has no room left, the node then stays unexpanded
+     */
+    public boolean expand(int node, long moves) {
+        int count = (moves == 0) ? 1 : Long.bitCount(moves);
+        if (size + count > move.length) {
+            return false;
+        }
+        int first = size;
+        if (moves == 0) {
+            init(first, PASS);
+        } else {
+            int child = first;
+            for (long rest = moves; rest != 0; rest &= rest - 1) {
+                init(child++, Long.numberOfTrailingZeros(rest));
+            }
+        }
+        size += count;
+        firstChild[node] = first;
+        childCount[node] = (byte) count;
+        return true;
+    }
+
+    /**
+     * Marks a node where the game is over: it is expanded and has no children.
+     */
+    public void markTerminal(int node) {
+        firstChild[node] = 0;
+        childCount[node] = 0;
+    }
+
+    /**
+     * Adds the result of one playout through a node.
+     * @param won true if the side that played the node's move won the playout
+     */
+    public void update(int node, boolean won) {
+        visits[node]++;
+        if (won) {
+            wins[node]++;
+        }
+    }
+
+    /**
+     * @return the square of the move that leads to the node, or PASS
+     */
+    public int getMove(int node) {
+        return move[node];
+    }
+
+    public int getVisits(int node) {
+        return visits[node];
+    }
+
+    public int getWins(int node) {
+        return wins[node];
+    }
+
+    /**
+     * @return the index of the first child, NOT_EXPANDED if the node has no children yet
+     */
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getChildCount(int node) {
+        return childCount[node];
+    }
+
+    public boolean isExpanded(int node) {
+        return firstChild[node] != NOT_EXPANDED;
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return move.length;
+    }
+
+    /**
+     * @return the bytes the arrays take for the full capacity
+     */
+    public long memoryBytes() {
+        return (long) BYTES_PER_NODE * move.length;
+    }
+}
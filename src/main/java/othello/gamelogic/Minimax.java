@@ -4,7 +4,6 @@ package othello.gamelogic;
 
 import java.util.List;
 import java.util.Map;
-import othello.Constants;
 
 public class Minimax implements AIStrategy {
 
@@ -35,20 +34,299 @@ public class Minimax implements AIStrategy {
 //        System.out.println(best.getX() + " " + best.getY());
     }
 
+    //Default search depth in plies used by computerMove
+    public static final int DEFAULT_DEPTH = 6;
+
+    //Default wall-clock budget per move in milliseconds for alphaBetaTimed
+    public static final long DEFAULT_MOVE_TIME_MILLIS = 1000;
+
+    //Default transposition table size in megabytes
+    public static final int DEFAULT_HASH_MB = 16;
+
+    //Shared by every alphaBeta call so results are reused across moves, null means no table
+    private TranspositionTable transpositionTable;
+
+    //Number of threads used by alphaBetaTimed, more than one searches with Lazy SMP and solves endgames in parallel
+    private int searchThreads = 1;
+
+    //Square weights by game phase used by computeWeight, minimaxOneStep and buildTree
+    private PhaseWeights phaseWeights = PhaseWeights.getDefault();
+
+    //Scores the leaves of alphaBeta and alphaBetaTimed, by default with the same phase weights
+    private PositionEvaluator evaluator = new SquareWeightEvaluator(phaseWeights);
+
+    //Created on the first parallel search and kept so its helper threads are reused
+    private LazySmpSearch parallelSearch;
+
+    //At or below this many empty squares the game is solved exactly instead of searched, 0 to never solve
+    private int endgameThreshold = EndgameSolver.DEFAULT_THRESHOLD;
+
+    //At or below this many empty squares the game is proven won, drawn or lost before searching, 0 to never
+    private int winLossDrawThreshold = EndgameSolver.DEFAULT_WLD_THRESHOLD;
+
+    //Asked to prove positions a few empties beyond the solver thresholds, null to never ask
+    private ProofNumberSearch proofSearch;
+
+    //At or below this many empty squares the proof-number search is asked before searching
+    private int proofThreshold = ProofNumberSearch.DEFAULT_ORACLE_EMPTIES;
+
+    //Created on the first endgame and kept so its table is reused between moves
+    private EndgameSolver endgameSolver;
+
+    //Created on the first endgame with more than one thread, it shares the serial solver's table
+    private ParallelEndgameSolver parallelSolver;
+
     //Default constructor
     public Minimax() {}
 
+    //Constructor with a transposition table of the given size in megabytes
+    public Minimax(int hashSizeMb) {
+        this.transpositionTable = new TranspositionTable(hashSizeMb);
+    }
+
+    //This method searches the board with the depth-first negamax alpha-beta search
+    //Unlike buildTree, no Node tree is built, children are generated while searching
+    //Return the best move with its score and the number of visited nodes
+    //In the endgame the score is the exact final disc difference instead of a board weight
+    public SearchResult alphaBeta(BoardSpace[][] board, Player pc, int depth) {
+        SearchPosition position = SearchPosition.fromBoardSpaces(board, pc.getColor());
+        SearchResult solved = solveIfEndgame(position, 0);
+        if (solved != null) {
+            return solved;
+        }
+        AlphaBetaSearch search = new AlphaBetaSearch(evaluator);
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+            search.setTranspositionTable(transpositionTable);
+        }
+        return search.search(position, depth);
+    }
+
+    //This method runs the alpha-beta search with iterative deepening until the time budget expires
+    //or maxDepth is completed, and returns the best move of the deepest completed iteration
+    //With more than one search thread and a transposition table, all threads search in parallel
+    //Near the end the game is solved instead, from more empties the larger the time budget is
+    public SearchResult alphaBetaTimed(BoardSpace[][] board, Player pc, long budgetMillis, int maxDepth) {
+        SearchPosition position = SearchPosition.fromBoardSpaces(board, pc.getColor());
+        long start = System.currentTimeMillis();
+        SearchResult solved = solveIfEndgame(position, extraEndgameEmpties(budgetMillis));
+        if (solved != null) {
+            return solved;
+        }
+        //A proven loss falls through to the search, which plays the move that looks most resisting
+        long remainingMillis = Math.max(1, budgetMillis - (System.currentTimeMillis() - start));
+        if (searchThreads > 1 && transpositionTable != null) {
+            if (parallelSearch == null) {
+                parallelSearch = new LazySmpSearch(searchThreads, transpositionTable, evaluator);
+            }
+            transpositionTable.newSearch();
+            return parallelSearch.searchTimed(position, remainingMillis, maxDepth);
+        }
+        AlphaBetaSearch search = new AlphaBetaSearch(evaluator);
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+            search.setTranspositionTable(transpositionTable);
+        }
+        return search.searchTimed(position, remainingMillis, maxDepth);
+    }
+
+    //Solve the position exactly, or prove it won or drawn, if it has few enough empty squares
+    //Return null when it is too early to solve or when the position is proven lost
+    private SearchResult solveIfEndgame(SearchPosition position, int extraEmpties) {
+        int empties = position.getEmptyCount();
+        if (endgameThreshold > 0 && empties <= endgameThreshold + extraEmpties) {
+            return solveEndgame(position);
+        }
+        if (winLossDrawThreshold > 0 && empties <= winLossDrawThreshold + extraEmpties) {
+            SearchResult result = solveWinLossDraw(position);
+            //A proven loss is final, the prover could only prove it again and take the search's time
+            return (result.getScore() >= 0) ? result : null;
+        }
+        if (proofSearch != null && empties <= proofThreshold + extraEmpties) {
+            int proven = proofSearch.prove(position);
+            if (proven == ProofNumberSearch.WIN || proven == ProofNumberSearch.DRAW) {
+                return new SearchResult(proofSearch.getProofMove(), proven, empties, proofSearch.getExpansions());
+            }
+        }
+        return null;
+    }
+
+    //Each extra empty square multiplies the solve time, so a budget k times the default
+    //can afford log(k) / log(branching) more empties, and a smaller budget fewer
+    private static int extraEndgameEmpties(long budgetMillis) {
+        double ratio = (double) Math.max(1, budgetMillis) / DEFAULT_MOVE_TIME_MILLIS;
+        return (int) Math.floor(Math.log(ratio) / Math.log(EndgameSolver.BRANCHING_PER_EMPTY));
+    }
+
+    //This method proves the position won, drawn or lost, the score is 1, 0 or -1
+    public SearchResult solveWinLossDraw(SearchPosition position) {
+        if (searchThreads > 1) {
+            return parallelSolver().solveWinLossDraw(position);
+        }
+        return serialSolver().solveWinLossDraw(position);
+    }
+
+    //This method solves the position to the end of the game and returns the exact final disc difference
+    public SearchResult solveEndgame(SearchPosition position) {
+        if (searchThreads > 1) {
+            return parallelSolver().solve(position);
+        }
+        return serialSolver().solve(position);
+    }
+
+    private EndgameSolver serialSolver() {
+        if (endgameSolver == null) {
+            endgameSolver = new EndgameSolver();
+        }
+        return endgameSolver;
+    }
+
+    private ParallelEndgameSolver parallelSolver() {
+        if (parallelSolver == null) {
+            parallelSolver = new ParallelEndgameSolver(searchThreads, serialSolver().getTranspositionTable());
+        }
+        return parallelSolver;
+    }
+
+    //Set the number of empty squares at or below which the game is solved exactly, 0 to never solve
+    public void setEndgameThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Error: Endgame threshold should not be negative");
+        }
+        this.endgameThreshold = threshold;
+    }
+
+    //Return the number of empty squares at or below which the game is solved exactly
+    public int getEndgameThreshold() {
+        return this.endgameThreshold;
+    }
+
+    //Set the proof-number search used as an oracle for positions just beyond the solver thresholds
+    //A proven win or draw is played directly, anything else goes on to the normal search
+    public void setProofNumberSearch(ProofNumberSearch proofSearch) {
+        this.proofSearch = proofSearch;
+    }
+
+    //Return the proof-number search oracle, null if there is none
+    public ProofNumberSearch getProofNumberSearch() {
+        return this.proofSearch;
+    }
+
+    //Set the number of empty squares at or below which the proof-number search is asked
+    public void setProofThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Error: Proof threshold should not be negative");
+        }
+        this.proofThreshold = threshold;
+    }
+
+    //Return the number of empty squares at or below which the proof-number search is asked
+    public int getProofThreshold() {
+        return this.proofThreshold;
+    }
+
+    //Set the number of empty squares at or below which the game is proven won, drawn or lost, 0 to never
+    public void setWinLossDrawThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Error: Win/loss/draw threshold should not be negative");
+        }
+        this.winLossDrawThreshold = threshold;
+    }
+
+    //Return the number of empty squares at or below which the game is proven won, drawn or lost
+    public int getWinLossDrawThreshold() {
+        return this.winLossDrawThreshold;
+    }
+
+    //Set the transposition table used by alphaBeta, null to search without one
+    public void setTranspositionTable(TranspositionTable table) {
+        this.transpositionTable = table;
+        shutdownParallelSearch();
+    }
+
+    //Set the evaluation used at the leaves of alphaBeta and alphaBetaTimed, for example a FeatureEvaluator
+    //to weigh stability, mobility and frontier discs on top of the board weights, or a PatternEvaluator
+    //with weights loaded by PatternWeights.load
+    public void setEvaluator(PositionEvaluator evaluator) {
+        if (evaluator == null) {
+            throw new IllegalArgumentException("Error: Evaluator should not be null");
+        }
+        this.evaluator = evaluator;
+        shutdownParallelSearch();
+    }
+
+    //Return the evaluation used at the leaves of alphaBeta and alphaBetaTimed
+    public PositionEvaluator getEvaluator() {
+        return this.evaluator;
+    }
+
+    //Set the square weights used by computeWeight, for example PhaseWeights.load of a tuned configuration
+    //or PhaseWeights.single(Constants.BOARD_WEIGHTS) for the original single table
+    //The alpha-beta leaves switch to them too, unless a different evaluation was set with setEvaluator
+    public void setPhaseWeights(PhaseWeights phaseWeights) {
+        if (phaseWeights == null) {
+            throw new IllegalArgumentException("Error: Phase weights should not be null");
+        }
+        if (evaluator instanceof SquareWeightEvaluator
+                && ((SquareWeightEvaluator) evaluator).getWeights() == this.phaseWeights) {
+            evaluator = new SquareWeightEvaluator(phaseWeights);
+            //The parallel search holds the old evaluator
+            shutdownParallelSearch();
+        }
+        this.phaseWeights = phaseWeights;
+    }
+
+    //Return the square weights used by computeWeight
+    public PhaseWeights getPhaseWeights() {
+        return this.phaseWeights;
+    }
+
+    //Set the number of threads used by alphaBetaTimed, 1 for a single-threaded search
+    public void setSearchThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        this.searchThreads = threads;
+        shutdownParallelSearch();
+    }
+
+    //Return the number of threads used by alphaBetaTimed
+    public int getSearchThreads() {
+        return this.searchThreads;
+    }
+
+    //Stop the helper threads of the parallel search and solver, new ones are created when they are needed again
+    public void shutdownParallelSearch() {
+        if (parallelSearch != null) {
+            parallelSearch.shutdown();
+            parallelSearch = null;
+        }
+        if (parallelSolver != null) {
+            parallelSolver.shutdown();
+            parallelSolver = null;
+        }
+    }
+
+    //Return the transposition table used by alphaBeta, its counters show the hit rate
+    public TranspositionTable getTranspositionTable() {
+        return this.transpositionTable;
+    }
+
     //This method is for testing the minimax with only one-step depth
     //It is for comparing with other AI strategy and itself with other number of depth
     public BoardSpace minimaxOneStep(BoardSpace[][] board, Player pc) {
-        Map<BoardSpace, List<BoardSpace>> move = pc.getAvailableMoves(board);
+        SearchPosition position = SearchPosition.fromBoardSpaces(board, pc.getColor());
+        long move = position.legalMoves();
         BoardSpace max_boardspace = null;
         int max_value = Integer.MIN_VALUE;
-        for (BoardSpace i : move.keySet()) {
-            BoardSpace[][] futrue = futureBoard(board, i,move, pc);
-            if (computeWeight(futrue,pc) >= max_value) {
-                max_boardspace = new BoardSpace(i);
-                max_value = computeWeight(futrue,pc);
+        for (long rest = move; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            position.makeMove(square);
+            int weight = computeWeight(position, pc);
+            position.undoMove();
+            if (weight >= max_value) {
+                max_boardspace = new BoardSpace(board[Bitboard.getX(square)][Bitboard.getY(square)]);
+                max_value = weight;
             }
         }
         return max_boardspace;
@@ -89,8 +367,9 @@ public class Minimax implements AIStrategy {
             return node;
         }
         for (Node successor : node.getChildren()) {
-            if (value(successor, alpha, alpha).getWeight() >= max) {
-                max = value(successor, alpha, beta).getWeight();
+            int weight = value(successor, alpha, beta).getWeight();
+            if (weight >= max) {
+                max = weight;
                 max_node = successor;
                 max_node.setWeight(max);
             }
@@ -112,8 +391,9 @@ public class Minimax implements AIStrategy {
             return node;
         }
         for (Node successor : node.getChildren()) {
-            if (value(successor, alpha, beta).getWeight() <= min) {
-                min = value(successor, alpha, beta).getWeight();
+            int weight = value(successor, alpha, beta).getWeight();
+            if (weight <= min) {
+                min = weight;
                 min_node = successor;
                 min_node.setWeight(min);
             }
@@ -131,6 +411,7 @@ public class Minimax implements AIStrategy {
     //Depth start from 0
     //MaxDepth starts from 2 to satisfy the minimax, at least two
     //This method is to build all the future state tree from current board state
+    //The whole tree is built on one SearchPosition by making and undoing moves in place
     public void buildTree(BoardSpace[][] board, Player pc, Player op, int depth, Node root, int maxDepth) {
         if (maxDepth < 2) {
             throw new IllegalArgumentException("Error: Max Depth should be at least 2");
@@ -138,49 +419,47 @@ public class Minimax implements AIStrategy {
         if (depth > maxDepth) {
             return;
         }
-        BoardSpace[][] copyBoard = this.getCopyBoard(board);
+        //Even depths are opponent nodes, so the self player moves first only from an odd depth
+        BoardSpace.SpaceType toMove = (depth == 0 || depth % 2 != 0) ? pc.getColor() : op.getColor();
+        SearchPosition position = SearchPosition.fromBoardSpaces(board, toMove);
+        buildTree(position, board, pc, depth, root, maxDepth);
+    }
+
+    //The recursive part of buildTree, board is only used to label the nodes with their BoardSpace
+    private void buildTree(SearchPosition position, BoardSpace[][] board, Player pc, int depth, Node root,
+                           int maxDepth) {
+        if (depth > maxDepth) {
+            return;
+        }
         //If current node is root, set it to be root and depth 0, and go to next node
         if (depth == 0) {
             root.setRoot(true);
             root.setDepth(depth);
             root.setMax(true);
-            buildTree(board, pc, op, depth + 1, root, maxDepth);
+            buildTree(position, board, pc, depth + 1, root, maxDepth);
             return;
         }
-        if (depth % 2 != 0) {
-            //This is pc (self)
-            Map<BoardSpace, List<BoardSpace>> availableMoves = pc.getAvailableMoves(copyBoard);
-            if (availableMoves.isEmpty() || depth + 1 > maxDepth) {
-                root.setWeight(computeWeight(copyBoard,pc));
-                return;
-            }
-            //Add all the future moves of self player to the current node as children
-            for (BoardSpace i : availableMoves.keySet()) {
-                Node temp = new Node();
-                temp.setBoardSpace(i);
-                temp.setDepth(depth);
+        //Odd depths are pc (self) moves, even depths are op moves
+        long availableMoves = position.legalMoves();
+        if (availableMoves == 0 || depth + 1 > maxDepth) {
+            root.setWeight(computeWeight(position, pc));
+            return;
+        }
+        //Add all the future moves of the moving player to the current node as children
+        for (long rest = availableMoves; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            Node temp = new Node();
+            temp.setBoardSpace(board[Bitboard.getX(square)][Bitboard.getY(square)]);
+            temp.setDepth(depth);
+            if (depth % 2 != 0) {
                 temp.setMin(true);
-                BoardSpace[][] future = futureBoard(copyBoard,i,availableMoves,pc);
-                root.getChildren().add(temp);
-                buildTree(future,pc,op,depth + 1,temp, maxDepth);
-            }
-        } else {
-            //This is op
-            Map<BoardSpace, List<BoardSpace>> availableMoves = op.getAvailableMoves(copyBoard);
-            if (availableMoves.isEmpty() || depth + 1 > maxDepth) {
-                root.setWeight(computeWeight(copyBoard,pc));
-                return;
-            }
-            //Add all the future moves of opponent player to the current node as children
-            for (BoardSpace i : availableMoves.keySet()) {
-                Node temp = new Node();
-                temp.setBoardSpace(i);
-                temp.setDepth(depth);
+            } else {
                 temp.setMax(true);
-                BoardSpace[][] future = futureBoard(copyBoard,i,availableMoves,op);
-                root.getChildren().add(temp);
-                buildTree(future,pc,op,depth + 1,temp, maxDepth);
             }
+            root.getChildren().add(temp);
+            position.makeMove(square);
+            buildTree(position, board, pc, depth + 1, temp, maxDepth);
+            position.undoMove();
         }
     }
 
@@ -198,21 +477,29 @@ public class Minimax implements AIStrategy {
     }
 
     //This method is to compute the weight of each node of current board state
+    //The discs are gathered into masks first so the table of the current phase is picked from the disc count
     public int computeWeight(BoardSpace[][] board, Player pc) {
-        int self_score = 0;
-        int opponent_score = 0;
+        long self = 0;
+        long opponent = 0;
         for (int i = 0; i < board.length; i++) {
             for (int j = 0; j < board[0].length; j++) {
                 if (board[i][j].getType() == pc.getColor()) {
-                    self_score += Constants.BOARD_WEIGHTS[i][j];
+                    self |= Bitboard.bit(Bitboard.square(i, j));
                 } else if (board[i][j].getType() == BoardSpace.SpaceType.EMPTY) {
                     //Do nothing
                 } else {
-                    opponent_score += Constants.BOARD_WEIGHTS[i][j];
+                    opponent |= Bitboard.bit(Bitboard.square(i, j));
                 }
             }
         }
-        return (self_score - opponent_score);
+        return phaseWeights.score(self, opponent);
+    }
+
+    //This method is the same weight computation on a search position, reading the discs from its masks
+    public int computeWeight(SearchPosition position, Player pc) {
+        long self = (pc.getColor() == BoardSpace.SpaceType.BLACK) ? position.getBlack() : position.getWhite();
+        long opponent = (pc.getColor() == BoardSpace.SpaceType.BLACK) ? position.getWhite() : position.getBlack();
+        return phaseWeights.score(self, opponent);
     }
 
     //This method is to show the next stage of the board by taking space on destination
@@ -224,28 +511,32 @@ public class Minimax implements AIStrategy {
             System.out.println("Origins is null");
             return null;
         }
+        //The squares from each origin to the destination come from a precomputed table instead of a walk
+        int target = Bitboard.square(destination.getX(), destination.getY());
+        long taken = Bitboard.bit(target);
         for (BoardSpace eachOrigin : theOrigins) {
-            // First find the direction to the destination
-            int rowChange = Integer.compare(destination.getX(), eachOrigin.getX());
-            int columnChange = Integer.compare(destination.getY(), eachOrigin.getY());
-            // Then actually take the steps
-            int newRow = eachOrigin.getX();
-            int newColumn = eachOrigin.getY();
-            while (true) {
-                //Take space for each boardspace
-                BoardSpace thePosition = copyBoard[newRow][newColumn];
-                // If already reached the destination, break
-                if (thePosition.getType() != pc.getColor()) {
-                    thePosition.setType(pc.getColor());
-                }
-                if (newRow == destination.getX() &&
-                        newColumn == destination.getY()) {
-                    break;
-                }
-                // Else, continue moving in that direction towards the destination
-                newRow += rowChange;
-                newColumn += columnChange;
-            }
+            int origin = Bitboard.square(eachOrigin.getX(), eachOrigin.getY());
+            taken |= Bitboard.bit(origin) | Bitboard.between(origin, target);
+        }
+        for (long rest = taken; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            copyBoard[Bitboard.getX(square)][Bitboard.getY(square)].setType(pc.getColor());
+        }
+        return copyBoard;
+    }
+
+    //This method is the mask-based version of futureBoard, the flips are computed on demand from the square
+    //Return null if placing on the square does not flip anything
+    public BoardSpace[][] futureBoard(BoardSpace[][] board, int square, Player pc) {
+        long flips = pc.getFlips(board, square);
+        if (flips == 0) {
+            return null;
+        }
+        BoardSpace[][] copyBoard = getCopyBoard(board);
+        copyBoard[Bitboard.getX(square)][Bitboard.getY(square)].setType(pc.getColor());
+        for (long rest = flips; rest != 0; rest &= rest - 1) {
+            int flipped = Long.numberOfTrailingZeros(rest);
+            copyBoard[Bitboard.getX(flipped)][Bitboard.getY(flipped)].setType(pc.getColor());
         }
         return copyBoard;
     }
@@ -264,6 +555,6 @@ public class Minimax implements AIStrategy {
 
     @Override
     public BoardSpace computerMove(BoardSpace[][] board, Player actingPlayer) {
-        return null;
+        return alphaBeta(board, actingPlayer, DEFAULT_DEPTH).toBoardSpace(board);
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package othello.gamelogic;
+
+/**
+ * Decides the order in which AlphaBetaSearch tries the moves of a node.
+ * Alpha-beta prunes the most when the best move comes first, so the search reports every
+ * beta cutoff back to the ordering to let it learn which moves tend to be good.
+ */
+public interface MoveOrdering {
+
+    /**
+     * Writes the legal moves of a node into a buffer in the order they should be searched.
+     * @param position the position at the node
+     * @param moves the legal moves as a mask
+     * @param ply the distance from the root, 0 at the root
+     * @param hashMove the best move stored for this position, or TranspositionTable.NO_MOVE
+     * @param out buffer of at least 64 entries receiving the ordered squares
+     * @return the number of moves written
+     */
+    int orderMoves(SearchPosition position, long moves, int ply, int hashMove, int[] out);
+
+    /**
+     * Called when a move caused a beta cutoff.
+     * @param position the position at the node, before the move is made
+     * @param move the square that caused the cutoff
+     * @param ply the distance from the root
+     * @param depth the remaining depth of the node
+     */
+    void recordCutoff(SearchPosition position, int move, int ply, int depth);
+
+    /**
+     * Called at the start of every search.
+     */
+    void newSearch();
+}
@@ -0,0 +1,21 @@
+package othello.gamelogic;
+
+/**
+ * Searches moves in square order and ignores every hint.
+ * Used as the baseline when measuring how much a real ordering prunes.
+ */
+public class NaturalMoveOrdering implements MoveOrdering {
+
+    @Override
+    public int orderMoves(SearchPosition position, long moves, int ply, int hashMove, int[] out) {
+        return Bitboard.toSquares(moves, out);
+    }
+
+    @Override
+    public void recordCutoff(SearchPosition position, int move, int ply, int depth) {
+    }
+
+    @Override
+    public void newSearch() {
+    }
+}
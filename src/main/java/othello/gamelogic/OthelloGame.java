@@ -10,6 +10,8 @@ public class OthelloGame {
     public static final int GAME_BOARD_SIZE = 8;
 
     private BoardSpace[][] board;
+    // Zobrist hash of the discs on the board, kept up to date by takeSpace
+    private long hashKey;
     private final Player playerOne;
     private final Player playerTwo;
 
@@ -31,6 +33,30 @@ public class OthelloGame {
         return  playerTwo;
     }
 
+    /**
+     * @return the Zobrist hash of the discs on the board, without the side to move
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Returns the hash of the current board with a side to move, matching SearchPosition.getHash.
+     * @param toMove the player that moves next
+     * @return the Zobrist hash of the position
+     */
+    public long getHashKey(Player toMove) {
+        return (toMove.getColor() == BoardSpace.SpaceType.WHITE) ? hashKey ^ Zobrist.SIDE_KEY : hashKey;
+    }
+
+    /**
+     * Recomputes the hash from the board.
+     * Only needed after the board's spaces were changed without going through takeSpace.
+     */
+    public void recomputeHashKey() {
+        hashKey = Zobrist.hash(board, BoardSpace.SpaceType.BLACK);
+    }
+
     /**
      * Returns the available moves for a player.
      * Used by the GUI to get available moves each turn.
@@ -41,6 +67,45 @@ public class OthelloGame {
         return player.getAvailableMoves(board);
     }
 
+    /**
+     * Returns the available moves for a player as a mask, without allocating.
+     * Bit (x * 8 + y) is set when board[x][y] is a valid destination.
+     * @param player player to get moves for
+     * @return the mask of valid destinations
+     */
+    public long getAvailableMoveMask(Player player) {
+        return player.getAvailableMoveMask(board);
+    }
+
+    /**
+     * Computes the spaces a player would flip by placing on a square.
+     * @param player the player placing the disc
+     * @param square the square index (x * 8 + y) of the destination
+     * @return a mask of the spaces that would flip
+     */
+    public long getFlips(Player player, int square) {
+        return player.getFlips(board, square);
+    }
+
+    /**
+     * Returns a mutable copy of the current board for search.
+     * Moves can be made and undone on it in place without touching the game board.
+     * @param toMove the player that moves next in the returned position
+     * @return a new search position with an empty undo stack
+     */
+    public SearchPosition getSearchPosition(Player toMove) {
+        return SearchPosition.fromBoardSpaces(board, toMove.getColor());
+    }
+
+    /**
+     * Returns the current board as a bitboard position for the search code.
+     * @param toMove the player that moves next in the returned position
+     * @return the bitboard equivalent of the current board
+     */
+    public Bitboard getBitboard(Player toMove) {
+        return Bitboard.fromBoardSpaces(board, toMove.getColor());
+    }
+
     /**
      * Initializes the board at the start of the game with all EMPTY spaces.
      */
@@ -69,6 +134,7 @@ public class OthelloGame {
             playerTwo.getPlayerOwnedSpacesSpaces().add(board[3][4]);
             playerTwo.getPlayerOwnedSpacesSpaces().add(board[4][3]);
         }
+        recomputeHashKey();
     }
 
     /**
@@ -93,15 +159,18 @@ public class OthelloGame {
         // If the target position belongs to the opponent,
         // then remove it from the opponent's ownership
         // And give its ownership to the acting player
+        int square = Bitboard.square(x, y);
         if (thePosition.getType() == opponent.getColor()) {
             opponent.getPlayerOwnedSpacesSpaces().remove(thePosition);
             actingPlayer.getPlayerOwnedSpacesSpaces().add(thePosition);
+            hashKey ^= Zobrist.key(opponent.getColor(), square) ^ Zobrist.key(actingPlayer.getColor(), square);
             thePosition.setType(actingPlayer.getColor());
         }
         // Else if the target position does not belong to anyone,
         // then also gives its ownership to the acting player
         else if (thePosition.getType() == BoardSpace.SpaceType.EMPTY) {
             actingPlayer.getPlayerOwnedSpacesSpaces().add(thePosition);
+            hashKey ^= Zobrist.key(actingPlayer.getColor(), square);
             thePosition.setType(actingPlayer.getColor());
         }
     }
@@ -124,24 +193,16 @@ public class OthelloGame {
             return;
         }
 
+        // Each origin and the destination bound a line, the squares on it come from a precomputed table
+        int destination = Bitboard.square(selectedDestination.getX(), selectedDestination.getY());
+        long taken = Bitboard.bit(destination);
         for (BoardSpace eachOrigin : theOrigins) {
-            // First find the direction to the destination
-            int rowChange = Integer.compare(selectedDestination.getX(), eachOrigin.getX());
-            int columnChange = Integer.compare(selectedDestination.getY(), eachOrigin.getY());
-            // Then actually take the steps
-            int newRow = eachOrigin.getX();
-            int newColumn = eachOrigin.getY();
-            while (true) {
-                takeSpace(actingPlayer, opponent, newRow, newColumn);
-                // If already reached the destination, break
-                if (newRow == selectedDestination.getX() &&
-                        newColumn == selectedDestination.getY()) {
-                    break;
-                }
-                // Else, continue moving in that direction towards the destination
-                newRow += rowChange;
-                newColumn += columnChange;
-            }
+            int origin = Bitboard.square(eachOrigin.getX(), eachOrigin.getY());
+            taken |= Bitboard.bit(origin) | Bitboard.between(origin, destination);
+        }
+        for (long rest = taken; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            takeSpace(actingPlayer, opponent, Bitboard.getX(square), Bitboard.getY(square));
         }
     }
 
@@ -163,7 +224,8 @@ public class OthelloGame {
         if (theStrategy.equals("minimax")) {
             System.out.println((self == playerOne ? "Player one" : "Player Two")
                     + " just took a turn, " + computer.getColor() + " minimax strategy");
-            BoardSpace next = computer.computerMove(board, self, opponent, 3);
+            // The depth is only a cap, the player's time budget decides how deep the search goes
+            BoardSpace next = computer.computerMove(board, self, opponent, AlphaBetaSearch.MAX_DEPTH);
 
             if (next != null) {
                 System.out.println("The placed value is : " + next.getX() + " " + next.getY());
@@ -0,0 +1,268 @@
+package othello.gamelogic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact endgame search spread over a work-stealing pool with the Young Brothers Wait rule.
+ * At a split node the eldest child, the move the ordering likes best, is searched first and alone:
+ * most cutoffs happen there, and its score narrows the window the younger brothers are tested
+ * against. Only then are the younger brothers forked as null-window tests, which idle threads steal
+ * from the pool. A brother that fails high is searched again with the full window by the waiting
+ * thread, and as soon as one reaches beta the rest are cancelled: a cancelled task, and everything
+ * below it, stops at its next check and leaves nothing in the table.
+ * Near the leaves splitting costs more than it gains, so below SPLIT_EMPTIES each task hands its
+ * position to a serial EndgameSolver of the thread it runs on. All of them share one table.
+ */
+public class ParallelEndgameSolver {
+
+    /**
+     * Positions with fewer empties than this are searched serially inside one task.
+     */
+    public static final int SPLIT_EMPTIES = 12;
+
+    private final int threads;
+    private final TranspositionTable table;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<EndgameSolver> solvers;
+    private final LongAdder nodes = new LongAdder();
+
+    /**
+     * @param threads the number of worker threads
+     * @param table the table shared by all workers; it holds disc differences, so it must not be
+     *              shared with the midgame search
+     */
+    public ParallelEndgameSolver(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        if (table == null) {
+            throw new IllegalArgumentException("Error: The endgame solver needs a transposition table");
+        }
+        this.threads = threads;
+        this.table = table;
+        this.solvers = ThreadLocal.withInitial(() -> new EndgameSolver(table));
+        // Daemon threads so an idle pool never keeps the game from exiting
+        this.pool = new ForkJoinPool(threads, Worker::new, null, false);
+    }
+
+    /**
+     * Solves a position exactly.
+     * @param position the position to solve, it is not changed
+     * @return the best move, the final disc difference, the number of empties as depth, and the
+     *         nodes of every thread
+     */
+    public SearchResult solve(SearchPosition position) {
+        return solveRoot(position, -EndgameSolver.INFINITY, EndgameSolver.INFINITY);
+    }
+
+    /**
+     * Only finds out whether a position is won, drawn or lost, like EndgameSolver.solveWinLossDraw.
+     * @param position the position to solve, it is not changed
+     * @return a best move and a score of 1 for a win, 0 for a draw and -1 for a loss
+     */
+    public SearchResult solveWinLossDraw(SearchPosition position) {
+        SearchResult result = solveRoot(position, -1, 1);
+        return new SearchResult(result.getBestMove(), Integer.signum(result.getScore()), result.getDepth(),
+                result.getNodes());
+    }
+
+    private SearchResult solveRoot(SearchPosition position, int alpha, int beta) {
+        nodes.reset();
+        table.newSearch();
+        int empties = position.getEmptyCount();
+        SplitTask root = new SplitTask(position.getPlayer(), position.getOpponent(), alpha, beta, null);
+        int score = pool.invoke(root);
+        return new SearchResult(root.bestMove, score, empties, nodes.sum());
+    }
+
+    /**
+     * Stops the worker threads. The solver cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    private static final class Worker extends ForkJoinWorkerThread {
+        Worker(ForkJoinPool pool) {
+            super(pool);
+            setName("endgame-worker-" + getPoolIndex());
+            setDaemon(true);
+        }
+    }
+
+    // Searches one node, splitting among its children once the eldest brother is done
+    private final class SplitTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final long player;
+        private final long opponent;
+        private final int alpha;
+        private final int beta;
+        private final SplitTask parent;
+        private volatile boolean aborted;
+        private int bestMove = SearchPosition.PASS;
+
+        SplitTask(long player, long opponent, int alpha, int beta, SplitTask parent) {
+            this.player = player;
+            this.opponent = opponent;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.parent = parent;
+        }
+
+        // A task is aborted when it or any task above it was cancelled
+        boolean isAborted() {
+            for (SplitTask task = this; task != null; task = task.parent) {
+                if (task.aborted) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected Integer compute() {
+            int empties = 64 - Long.bitCount(player | opponent);
+            if (empties < SPLIT_EMPTIES) {
+                return searchSerial(player, opponent, alpha, beta);
+            }
+            nodes.increment();
+
+            long key = EndgameSolver.key(player, opponent);
+            long entry = table.probe(key);
+            int hashMove = TranspositionTable.NO_MOVE;
+            if (entry != TranspositionTable.MISS && parent != null) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+            if (entry != TranspositionTable.MISS) {
+                hashMove = TranspositionTable.move(entry);
+            }
+
+            long moves = Bitboard.legalMoves(player, opponent);
+            if (moves == 0) {
+                if (Bitboard.legalMoves(opponent, player) == 0) {
+                    return discDifference(player, opponent);
+                }
+                return -new SplitTask(opponent, player, -beta, -alpha, this).compute();
+            }
+            if (hashMove != TranspositionTable.NO_MOVE && (moves & Bitboard.bit(hashMove)) == 0) {
+                hashMove = TranspositionTable.NO_MOVE;
+            }
+            int[] ordered = new int[64];
+            long[] flips = new long[64];
+            int count = solvers.get().orderMoves(player, opponent, moves, hashMove, ordered, flips);
+
+            // The eldest brother is searched alone, with the full window
+            int windowAlpha = alpha;
+            bestMove = ordered[0];
+            int best = -new SplitTask(opponent & ~flips[0], player | flips[0] | Bitboard.bit(ordered[0]),
+                    -beta, -windowAlpha, this).compute();
+            if (isAborted()) {
+                return 0;
+            }
+            if (best > windowAlpha) {
+                windowAlpha = best;
+            }
+
+            if (best < beta && count > 1) {
+                // The younger brothers are null-window tests against the eldest's score
+                List<SplitTask> brothers = new ArrayList<>(count - 1);
+                for (int i = 1; i < count; i++) {
+                    brothers.add(new SplitTask(opponent & ~flips[i], player | flips[i] | Bitboard.bit(ordered[i]),
+                            -windowAlpha - 1, -windowAlpha, this));
+                }
+                for (int i = brothers.size() - 1; i >= 1; i--) {
+                    brothers.get(i).fork();
+                }
+                for (int i = 0; i < brothers.size(); i++) {
+                    SplitTask brother = brothers.get(i);
+                    int score;
+                    if (i == 0 || brother.tryUnfork()) {
+                        // Nobody has stolen this brother yet, so it is tested here against the window as it is now
+                        if (-brother.beta < windowAlpha) {
+                            brother = new SplitTask(brother.player, brother.opponent, -windowAlpha - 1, -windowAlpha,
+                                    this);
+                        }
+                        score = -brother.compute();
+                    } else {
+                        score = -brother.join();
+                    }
+                    if (isAborted()) {
+                        cancelAll(brothers, i + 1);
+                        return 0;
+                    }
+                    // A brother that failed high on its test only gave a lower bound, and the window may
+                    // have moved since it was forked, so the real score needs the full window
+                    if (score > -brother.beta && score < beta) {
+                        score = -new SplitTask(brother.player, brother.opponent, -beta, -windowAlpha, this).compute();
+                        if (isAborted()) {
+                            cancelAll(brothers, i + 1);
+                            return 0;
+                        }
+                    }
+                    if (score > best) {
+                        best = score;
+                        bestMove = ordered[i + 1];
+                        if (score > windowAlpha) {
+                            windowAlpha = score;
+                        }
+                        if (score >= beta) {
+                            cancelAll(brothers, i + 1);
+                            break;
+                        }
+                    }
+                }
+            }
+
+            int bound = (best <= alpha) ? TranspositionTable.UPPER
+                    : (best >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, empties, bound, best, bestMove);
+            return best;
+        }
+
+        // Cuts off the brothers that are no longer needed and waits until they have let go
+        private void cancelAll(List<SplitTask> brothers, int from) {
+            for (int i = from; i < brothers.size(); i++) {
+                brothers.get(i).aborted = true;
+            }
+            for (int i = from; i < brothers.size(); i++) {
+                SplitTask brother = brothers.get(i);
+                if (!brother.tryUnfork()) {
+                    brother.quietlyJoin();
+                }
+            }
+        }
+
+        private int searchSerial(long player, long opponent, int alpha, int beta) {
+            EndgameSolver solver = solvers.get();
+            solver.setStopCondition(this::isAborted);
+            int score = solver.searchWindow(player, opponent, alpha, beta);
+            nodes.add(solver.getNodes());
+            solver.setStopCondition(null);
+            return solver.wasStopped() ? 0 : score;
+        }
+    }
+
+    private static int discDifference(long player, long opponent) {
+        return Long.bitCount(player) - Long.bitCount(opponent);
+    }
+}
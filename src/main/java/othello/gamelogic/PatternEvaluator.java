@@ -0,0 +1,57 @@
+package othello.gamelogic;
+
+/**
+ * Pattern-based evaluation: the sum, over every PatternSet instance, of the weight its current
+ * ternary index has in its family's table for the phase of the game.
+ * When the search position tracks its pattern indices, which prepare turns on, the indices are
+ * updated by each move and a leaf only costs one table lookup per instance. Positions that do not
+ * track them have their indices computed from the discs at each call.
+ * The evaluator only reads its weights, so one instance can serve several search threads.
+ */
+public class PatternEvaluator implements PositionEvaluator {
+
+    private final PatternWeights weights;
+
+    /**
+     * Creates an evaluator with the untrained weights, which score like the board weights.
+     */
+    public PatternEvaluator() {
+        this(PatternWeights.fromBoardWeights());
+    }
+
+    /**
+     * @param weights the tables to read, for example loaded with PatternWeights.load
+     */
+    public PatternEvaluator(PatternWeights weights) {
+        if (weights == null) {
+            throw new IllegalArgumentException("Error: Pattern weights should not be null");
+        }
+        this.weights = weights;
+    }
+
+    @Override
+    public void prepare(SearchPosition position) {
+        position.trackPatterns();
+    }
+
+    @Override
+    public int evaluate(SearchPosition position) {
+        int[] indices = position.getPatternIndices();
+        if (indices == null) {
+            indices = new int[PatternSet.instances()];
+            PatternSet.computeIndices(position.getBlack(), position.getWhite(), indices);
+        }
+        int phase = PatternWeights.phaseOf(64 - position.getEmptyCount());
+        int sum = 0;
+        for (int instance = 0; instance < indices.length; instance++) {
+            sum += weights.table(phase, PatternSet.familyOf(instance))[indices[instance]];
+        }
+        // The tables hold black's view in 1/SCALE units
+        int score = sum / PatternWeights.SCALE;
+        return position.isBlackToMove() ? score : -score;
+    }
+
+    public PatternWeights getWeights() {
+        return weights;
+    }
+}
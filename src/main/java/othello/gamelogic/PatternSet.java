@@ -0,0 +1,214 @@
+package othello.gamelogic;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The board patterns read by the pattern evaluation.
+ * Each family is a shape of squares, such as an edge with its two X-squares or a diagonal, and
+ * its instances are the distinct copies of that shape under the eight symmetries of the board.
+ * All instances of a family share one weight table. An instance's index is its squares read as a
+ * ternary number, the i-th square being digit i with 0 for empty, 1 for black and 2 for white,
+ * so a move changes an index by adding or subtracting powers of three.
+ */
+public final class PatternSet {
+
+    /** Ternary digit of an empty square. */
+    public static final int EMPTY_DIGIT = 0;
+    /** Ternary digit of a black disc. */
+    public static final int BLACK_DIGIT = 1;
+    /** Ternary digit of a white disc. */
+    public static final int WHITE_DIGIT = 2;
+
+    // Base shapes as {x, y} pairs, the order of the squares fixes the digits of the index
+    private static final String[] FAMILY_NAMES = {
+            "edge+2x", "corner3x3", "corner2x5", "row2", "row3", "row4",
+            "diagonal8", "diagonal7", "diagonal6", "diagonal5", "diagonal4"
+    };
+    private static final int[][][] SHAPES = {
+            {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {0, 5}, {0, 6}, {0, 7}, {1, 1}, {1, 6}},
+            {{0, 0}, {0, 1}, {0, 2}, {1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}},
+            {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {1, 0}, {1, 1}, {1, 2}, {1, 3}, {1, 4}},
+            {{1, 0}, {1, 1}, {1, 2}, {1, 3}, {1, 4}, {1, 5}, {1, 6}, {1, 7}},
+            {{2, 0}, {2, 1}, {2, 2}, {2, 3}, {2, 4}, {2, 5}, {2, 6}, {2, 7}},
+            {{3, 0}, {3, 1}, {3, 2}, {3, 3}, {3, 4}, {3, 5}, {3, 6}, {3, 7}},
+            {{0, 0}, {1, 1}, {2, 2}, {3, 3}, {4, 4}, {5, 5}, {6, 6}, {7, 7}},
+            {{0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 7}},
+            {{0, 2}, {1, 3}, {2, 4}, {3, 5}, {4, 6}, {5, 7}},
+            {{0, 3}, {1, 4}, {2, 5}, {3, 6}, {4, 7}},
+            {{0, 4}, {1, 5}, {2, 6}, {3, 7}}
+    };
+
+    /** Number of pattern families, each with its own weight table. */
+    public static final int FAMILIES = SHAPES.length;
+
+    // INSTANCE_SQUARES[i] lists the squares of instance i in digit order, INSTANCE_FAMILY[i] its family
+    private static final int[][] INSTANCE_SQUARES;
+    private static final int[] INSTANCE_FAMILY;
+    private static final int[] TABLE_SIZES = new int[FAMILIES];
+    // For every square the instances it belongs to, and the power of three of its digit in each
+    private static final int[][] SQUARE_INSTANCES = new int[64][];
+    private static final int[][] SQUARE_POWERS = new int[64][];
+    // How many instances cover each square
+    private static final int[] COVERAGE = new int[64];
+
+    static {
+        List<int[]> squares = new ArrayList<>();
+        List<Integer> families = new ArrayList<>();
+        for (int family = 0; family < FAMILIES; family++) {
+            TABLE_SIZES[family] = power(SHAPES[family].length);
+            Set<Long> seen = new HashSet<>();
+            for (int symmetry = 0; symmetry < 8; symmetry++) {
+                int[] instance = new int[SHAPES[family].length];
+                long mask = 0;
+                for (int i = 0; i < instance.length; i++) {
+                    instance[i] = transform(symmetry, SHAPES[family][i][0], SHAPES[family][i][1]);
+                    mask |= Bitboard.bit(instance[i]);
+                }
+                // A symmetry that maps the shape onto itself adds no new instance
+                if (seen.add(mask)) {
+                    squares.add(instance);
+                    families.add(family);
+                }
+            }
+        }
+        INSTANCE_SQUARES = squares.toArray(new int[0][]);
+        INSTANCE_FAMILY = new int[families.size()];
+        for (int i = 0; i < INSTANCE_FAMILY.length; i++) {
+            INSTANCE_FAMILY[i] = families.get(i);
+        }
+
+        for (int instance = 0; instance < INSTANCE_SQUARES.length; instance++) {
+            for (int square : INSTANCE_SQUARES[instance]) {
+                COVERAGE[square]++;
+            }
+        }
+        for (int square = 0; square < 64; square++) {
+            SQUARE_INSTANCES[square] = new int[COVERAGE[square]];
+            SQUARE_POWERS[square] = new int[COVERAGE[square]];
+            int count = 0;
+            for (int instance = 0; instance < INSTANCE_SQUARES.length; instance++) {
+                int[] members = INSTANCE_SQUARES[instance];
+                for (int digit = 0; digit < members.length; digit++) {
+                    if (members[digit] == square) {
+                        SQUARE_INSTANCES[square][count] = instance;
+                        SQUARE_POWERS[square][count] = power(digit);
+                        count++;
+                    }
+                }
+            }
+        }
+    }
+
+    private PatternSet() {}
+
+    // The square of (x, y) under one of the eight symmetries of the board
+    private static int transform(int symmetry, int x, int y) {
+        if ((symmetry & 4) != 0) {
+            int swap = x;
+            x = y;
+            y = swap;
+        }
+        if ((symmetry & 2) != 0) {
+            x = 7 - x;
+        }
+        if ((symmetry & 1) != 0) {
+            y = 7 - y;
+        }
+        return Bitboard.square(x, y);
+    }
+
+    private static int power(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of pattern instances on the board
+     */
+    public static int instances() {
+        return INSTANCE_SQUARES.length;
+    }
+
+    /**
+     * @return the family whose weight table an instance reads
+     */
+    public static int familyOf(int instance) {
+        return INSTANCE_FAMILY[instance];
+    }
+
+    /**
+     * @return the number of entries in the weight table of a family, three to the number of squares
+     */
+    public static int tableSize(int family) {
+        return TABLE_SIZES[family];
+    }
+
+    /**
+     * @return the name of a family, used in reports
+     */
+    public static String familyName(int family) {
+        return FAMILY_NAMES[family];
+    }
+
+    /**
+     * @return the squares of the base shape of a family in digit order; every instance reads its
+     *         squares in the order of the symmetric image of this shape
+     */
+    public static int[] baseSquares(int family) {
+        int[] squares = new int[SHAPES[family].length];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = Bitboard.square(SHAPES[family][i][0], SHAPES[family][i][1]);
+        }
+        return squares;
+    }
+
+    /**
+     * @return the number of instances that contain a square
+     */
+    public static int coverage(int square) {
+        return COVERAGE[square];
+    }
+
+    /**
+     * Computes the index of every instance from scratch.
+     * @param black the black discs
+     * @param white the white discs
+     * @param indices receives one index per instance
+     */
+    public static void computeIndices(long black, long white, int[] indices) {
+        for (int instance = 0; instance < INSTANCE_SQUARES.length; instance++) {
+            int[] members = INSTANCE_SQUARES[instance];
+            int index = 0;
+            for (int digit = members.length - 1; digit >= 0; digit--) {
+                long bit = Bitboard.bit(members[digit]);
+                index = index * 3 + ((black & bit) != 0 ? BLACK_DIGIT : (white & bit) != 0 ? WHITE_DIGIT : EMPTY_DIGIT);
+            }
+            indices[instance] = index;
+        }
+    }
+
+    /**
+     * Adds a multiple of each square's digit value to the indices of the instances holding it.
+     * Placing a black disc adds 1 per square, a white disc 2, flipping white to black -1 and
+     * black to white +1; the same call with the negated step reverts it.
+     * @param indices the indices to change
+     * @param squares the squares whose digits change
+     * @param step the change of the digit of each square
+     */
+    static void addDigits(int[] indices, long squares, int step) {
+        for (long rest = squares; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            int[] instances = SQUARE_INSTANCES[square];
+            int[] powers = SQUARE_POWERS[square];
+            for (int i = 0; i < instances.length; i++) {
+                indices[instances[i]] += step * powers[i];
+            }
+        }
+    }
+}
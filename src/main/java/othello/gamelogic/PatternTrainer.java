@@ -0,0 +1,358 @@
+package othello.gamelogic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fits pattern weights to recorded positions by least-squares regression on the final disc
+ * difference, so the pattern evaluation predicts how a game ends instead of summing hand-set
+ * square weights.
+ * <p>
+ * The data file is a stream of fixed-size samples, each the black discs and the white discs as
+ * longs and the final disc difference from black's point of view as a byte, written with
+ * writeSample. Training streams the file in batches: while the worker threads fit one batch the
+ * calling thread reads the next, so a data set never has to fit in memory.
+ * <p>
+ * Each sample touches one weight per pattern instance, so the gradient is sparse: the prediction
+ * error is added, times the learning rate, to just those entries. The workers update the shared
+ * float tables without locks (the Hogwild scheme); two workers rarely touch the same entry at
+ * once, and a lost update only costs a little accuracy.
+ */
+public class PatternTrainer {
+
+    /** Size of one sample in the data file: two longs and a byte. */
+    public static final int SAMPLE_BYTES = 17;
+
+    /** Default step size per sample. */
+    public static final double DEFAULT_LEARNING_RATE = 0.002;
+
+    /** Default number of samples read from disk at a time. */
+    public static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+    // A game has at most 60 placements, so at most 60 positions with a move to record
+    private static final int MAX_PLACEMENTS = 60;
+
+    private final int threads;
+    private final ExecutorService pool;
+    // weights[phase][family][index], in discs
+    private final float[][][] weights = new float[PatternWeights.PHASES][PatternSet.FAMILIES][];
+    private double learningRate = DEFAULT_LEARNING_RATE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    // The mean squared error of every epoch of the last train call
+    private double[] epochErrors = new double[0];
+
+    /**
+     * @param threads the number of worker threads that fit the samples
+     */
+    public PatternTrainer(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        this.threads = threads;
+        for (int phase = 0; phase < PatternWeights.PHASES; phase++) {
+            for (int family = 0; family < PatternSet.FAMILIES; family++) {
+                weights[phase][family] = new float[PatternSet.tableSize(family)];
+            }
+        }
+        // Daemon threads so an idle pool never keeps the program from exiting
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pattern-trainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Appends one sample to a data file.
+     * @param out the stream of the data file
+     * @param black the black discs
+     * @param white the white discs
+     * @param discDifference the final black discs minus white discs of the game the position is from
+     */
+    public static void writeSample(DataOutputStream out, long black, long white, int discDifference) throws IOException {
+        out.writeLong(black);
+        out.writeLong(white);
+        out.writeByte(discDifference);
+    }
+
+    /**
+     * Makes a data file from self-play: both sides search to a small depth with the square weights,
+     * with a random move now and then so the games differ, and every position of a game is labelled
+     * with its final disc difference.
+     * @param filePath the data file to write
+     * @param games the number of games to play
+     * @param depth the search depth of each move
+     * @param seed the seed of the random moves
+     * @return the number of samples written
+     */
+    public static long recordSelfPlay(String filePath, int games, int depth, long seed) throws IOException {
+        Random random = new Random(seed);
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        long samples = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            long[] blacks = new long[MAX_PLACEMENTS];
+            long[] whites = new long[MAX_PLACEMENTS];
+            for (int game = 0; game < games; game++) {
+                SearchPosition position = new SearchPosition(Bitboard.initial());
+                int count = 0;
+                while (!position.isGameOver()) {
+                    long moves = position.legalMoves();
+                    if (moves == 0) {
+                        position.makePass();
+                        continue;
+                    }
+                    blacks[count] = position.getBlack();
+                    whites[count] = position.getWhite();
+                    count++;
+                    int square = (random.nextInt(8) == 0)
+                            ? Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves)))
+                            : search.search(new SearchPosition(position.toBitboard()), depth).getBestMove();
+                    position.makeMove(square);
+                }
+                int difference = Long.bitCount(position.getBlack()) - Long.bitCount(position.getWhite());
+                for (int i = 0; i < count; i++) {
+                    writeSample(out, blacks[i], whites[i], difference);
+                }
+                samples += count;
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Runs one pass over a data file.
+     * @param filePath the data file
+     * @return the mean squared error of the predictions, in discs squared, measured while fitting
+     */
+    public double trainEpoch(String filePath) throws IOException {
+        Batch reading = new Batch(batchSize);
+        Batch fitting = new Batch(batchSize);
+        double squaredError = 0;
+        long samples = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath), 1 << 16))) {
+            reading.read(in);
+            while (reading.size > 0) {
+                Batch swap = fitting;
+                fitting = reading;
+                reading = swap;
+                List<Future<Double>> running = submit(fitting);
+                // The next batch is read from disk while this one is fitted
+                reading.read(in);
+                for (Future<Double> slice : running) {
+                    squaredError += waitFor(slice);
+                }
+                samples += fitting.size;
+            }
+        }
+        return samples == 0 ? 0 : squaredError / samples;
+    }
+
+    /**
+     * Fits the weights with several passes over a data file.
+     * @param filePath the data file
+     * @param epochs the number of passes
+     * @return the fitted weights, ready for a PatternEvaluator or PatternWeights.save; the error of
+     *         each pass is left in getEpochErrors
+     */
+    public PatternWeights train(String filePath, int epochs) throws IOException {
+        epochErrors = new double[epochs];
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            epochErrors[epoch] = trainEpoch(filePath);
+        }
+        return toWeights();
+    }
+
+    /**
+     * @return the current weights in the fixed-point form the evaluator reads
+     */
+    public PatternWeights toWeights() {
+        PatternWeights result = new PatternWeights();
+        for (int phase = 0; phase < PatternWeights.PHASES; phase++) {
+            for (int family = 0; family < PatternSet.FAMILIES; family++) {
+                float[] table = weights[phase][family];
+                for (int index = 0; index < table.length; index++) {
+                    result.set(phase, family, index, Math.round(table[index] * PatternWeights.SCALE));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the predicted final disc difference from black's point of view
+     */
+    public double predict(long black, long white) {
+        int[] indices = new int[PatternSet.instances()];
+        PatternSet.computeIndices(black, white, indices);
+        float[][] tables = weights[PatternWeights.phaseOf(Long.bitCount(black | white))];
+        double prediction = 0;
+        for (int instance = 0; instance < indices.length; instance++) {
+            prediction += tables[PatternSet.familyOf(instance)][indices[instance]];
+        }
+        return prediction;
+    }
+
+    // Splits a batch into one slice per thread
+    private List<Future<Double>> submit(Batch batch) {
+        List<Future<Double>> running = new ArrayList<>(threads);
+        int slice = (batch.size + threads - 1) / threads;
+        for (int from = 0; from < batch.size; from += slice) {
+            int start = from;
+            int end = Math.min(batch.size, from + slice);
+            running.add(pool.submit((Callable<Double>) () -> fit(batch, start, end)));
+        }
+        return running;
+    }
+
+    // One stochastic gradient step per sample, returns the summed squared error before each step
+    private double fit(Batch batch, int from, int to) {
+        int[] indices = new int[PatternSet.instances()];
+        float rate = (float) learningRate;
+        double squaredError = 0;
+        for (int i = from; i < to; i++) {
+            long black = batch.blacks[i];
+            long white = batch.whites[i];
+            PatternSet.computeIndices(black, white, indices);
+            float[][] tables = weights[PatternWeights.phaseOf(Long.bitCount(black | white))];
+            float prediction = 0;
+            for (int instance = 0; instance < indices.length; instance++) {
+                prediction += tables[PatternSet.familyOf(instance)][indices[instance]];
+            }
+            float error = batch.labels[i] - prediction;
+            squaredError += (double) error * error;
+            float step = rate * error;
+            for (int instance = 0; instance < indices.length; instance++) {
+                tables[PatternSet.familyOf(instance)][indices[instance]] += step;
+            }
+        }
+        return squaredError;
+    }
+
+    private static double waitFor(Future<Double> slice) {
+        try {
+            return slice.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Error: Interrupted while fitting pattern weights", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error: Fitting pattern weights failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the worker threads. The trainer cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public void setLearningRate(double learningRate) {
+        if (learningRate <= 0) {
+            throw new IllegalArgumentException("Error: Learning rate should be positive");
+        }
+        this.learningRate = learningRate;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Error: Batch size should be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the mean squared error of every epoch of the last train call, in discs squared
+     */
+    public double[] getEpochErrors() {
+        return epochErrors.clone();
+    }
+
+    // A block of samples read from the data file
+    private static final class Batch {
+        private final long[] blacks;
+        private final long[] whites;
+        private final byte[] labels;
+        private int size;
+
+        Batch(int capacity) {
+            blacks = new long[capacity];
+            whites = new long[capacity];
+            labels = new byte[capacity];
+        }
+
+        // Fills the batch from the stream, a short batch means the end of the file was reached
+        void read(DataInputStream in) throws IOException {
+            size = 0;
+            try {
+                while (size < blacks.length) {
+                    long black = in.readLong();
+                    long white = in.readLong();
+                    byte label = in.readByte();
+                    blacks[size] = black;
+                    whites[size] = white;
+                    labels[size] = label;
+                    size++;
+                }
+            } catch (EOFException e) {
+                // The last batch of the file
+            }
+        }
+    }
+
+    /**
+     * Fits weights from the command line:
+     * {@code java othello.gamelogic.PatternTrainer data.bin weights.bin [epochs] [threads]}.
+     * With {@code --self-play games} instead of an existing data file, the data is played first.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("--self-play")) {
+            long samples = recordSelfPlay(args[2], Integer.parseInt(args[1]), 2, System.nanoTime());
+            System.out.println("Recorded " + samples + " positions to " + args[2]);
+            return;
+        }
+        if (args.length < 2) {
+            System.out.println("Usage: PatternTrainer data.bin weights.bin [epochs] [threads]");
+            System.out.println("       PatternTrainer --self-play games data.bin");
+            return;
+        }
+        int epochs = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        int threadCount = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        PatternTrainer trainer = new PatternTrainer(threadCount);
+        try {
+            // Epoch by epoch rather than train, so the progress shows while it runs
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                System.out.printf("Epoch %d: mean squared error %.2f%n", epoch, trainer.trainEpoch(args[0]));
+            }
+            trainer.toWeights().save(args[1]);
+            System.out.println("Saved the weights to " + args[1]);
+        } finally {
+            trainer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package othello.gamelogic;
+
+import othello.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The weight tables of the pattern evaluation: for every game phase and every PatternSet family,
+ * one weight per ternary index. Weights are from black's point of view, in units of 1/SCALE of a
+ * board weight, and stored as shorts so a full set stays small in memory and on disk.
+ * <p>
+ * The binary file is a DataOutputStream stream: the magic number, the format version, the number
+ * of phases and of families, the table size of each family, then every table as shorts, phase by
+ * phase and family by family.
+ */
+public class PatternWeights {
+
+    /** Number of game phases, each a bucket of disc counts with its own tables. */
+    public static final int PHASES = 12;
+
+    /** Weights are stored in units of 1/SCALE so small weights keep some precision. */
+    public static final int SCALE = 16;
+
+    private static final int MAGIC = 0x4F545057;
+    private static final int VERSION = 1;
+
+    // weights[phase][family][index]
+    private final short[][][] weights = new short[PHASES][PatternSet.FAMILIES][];
+
+    /**
+     * Creates tables that are all zero.
+     */
+    public PatternWeights() {
+        for (int phase = 0; phase < PHASES; phase++) {
+            for (int family = 0; family < PatternSet.FAMILIES; family++) {
+                weights[phase][family] = new short[PatternSet.tableSize(family)];
+            }
+        }
+    }
+
+    /**
+     * Creates tables that reproduce Constants.BOARD_WEIGHTS: each square's weight is shared out
+     * evenly among the instances that cover it, so the untrained pattern evaluation scores a
+     * position like the square weights do, up to rounding. Training starts from here.
+     * @return weights equal in every phase
+     */
+    public static PatternWeights fromBoardWeights() {
+        PatternWeights result = new PatternWeights();
+        for (int family = 0; family < PatternSet.FAMILIES; family++) {
+            int[] squares = PatternSet.baseSquares(family);
+            double[] share = new double[squares.length];
+            for (int i = 0; i < squares.length; i++) {
+                share[i] = (double) SCALE * Constants.BOARD_WEIGHTS[Bitboard.getX(squares[i])][Bitboard.getY(squares[i])]
+                        / PatternSet.coverage(squares[i]);
+            }
+            for (int index = 0; index < PatternSet.tableSize(family); index++) {
+                double value = 0;
+                int rest = index;
+                for (int i = 0; i < squares.length; i++) {
+                    int digit = rest % 3;
+                    rest /= 3;
+                    if (digit == PatternSet.BLACK_DIGIT) {
+                        value += share[i];
+                    } else if (digit == PatternSet.WHITE_DIGIT) {
+                        value -= share[i];
+                    }
+                }
+                for (int phase = 0; phase < PHASES; phase++) {
+                    result.set(phase, family, index, (int) Math.round(value));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the phase of a position with the given number of discs on the board
+     */
+    public static int phaseOf(int discs) {
+        return Math.min(PHASES - 1, Math.max(0, discs - 4) * PHASES / 61);
+    }
+
+    /**
+     * @return the weight table of a family in a phase, indexed by the ternary pattern index; the
+     *         array is live and must not be changed by the caller
+     */
+    public short[] table(int phase, int family) {
+        return weights[phase][family];
+    }
+
+    public int get(int phase, int family, int index) {
+        return weights[phase][family][index];
+    }
+
+    /**
+     * Sets a weight, clamped to the range of a short.
+     */
+    public void set(int phase, int family, int index, int value) {
+        weights[phase][family][index] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    /**
+     * Writes the tables to a binary file.
+     * @param filePath the destination file
+     */
+    public void save(String filePath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(PHASES);
+            out.writeInt(PatternSet.FAMILIES);
+            for (int family = 0; family < PatternSet.FAMILIES; family++) {
+                out.writeInt(PatternSet.tableSize(family));
+            }
+            for (short[][] phase : weights) {
+                for (short[] table : phase) {
+                    for (short weight : table) {
+                        out.writeShort(weight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads tables written by save.
+     * @param filePath the source file
+     * @return the loaded weights
+     * @throws IOException if the file cannot be read or was written for a different pattern set
+     */
+    public static PatternWeights load(String filePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Error: " + filePath + " is not a pattern weight file of this version");
+            }
+            if (in.readInt() != PHASES || in.readInt() != PatternSet.FAMILIES) {
+                throw new IOException("Error: " + filePath + " was written for a different pattern set");
+            }
+            for (int family = 0; family < PatternSet.FAMILIES; family++) {
+                if (in.readInt() != PatternSet.tableSize(family)) {
+                    throw new IOException("Error: " + filePath + " was written for a different pattern set");
+                }
+            }
+            PatternWeights result = new PatternWeights();
+            for (short[][] phase : result.weights) {
+                for (short[] table : phase) {
+                    for (int index = 0; index < table.length; index++) {
+                        table[index] = in.readShort();
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
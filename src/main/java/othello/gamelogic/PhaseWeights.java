@@ -0,0 +1,250 @@
+package othello.gamelogic;
+
+import othello.Constants;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Square weight tables that change with the phase of the game: each phase covers a range of disc
+ * counts and has its own 8x8 table, so corners and X-squares can matter more in the opening and
+ * plain disc count more near the end.
+ * The tables are flattened into one int array per phase and a 65-entry array maps every disc count
+ * straight to its phase.
+ * <p>
+ * For scoring, each table is also split into weight classes, masks of the squares that share one
+ * weight. A position then scores as the sum over the classes of the weight times the difference of
+ * two popcounts: a fixed handful of branch-free operations instead of one table load per disc. The
+ * original single table has seven classes and the default phases seven to nine.
+ * <p>
+ * The configuration is plain text. Blank lines and lines starting with # are ignored; each phase
+ * is a line {@code phase <most discs>} followed by eight rows of eight weights, and the phases are
+ * listed in increasing order with the last one reaching 64 discs.
+ */
+public final class PhaseWeights {
+
+    /** Class path resource of the default configuration. */
+    public static final String DEFAULT_RESOURCE = "/othello/phase-weights.txt";
+
+    private final int[] maxDiscs;
+    private final int[][] tables;
+    // tableOfDiscs[discs] is the flat table of the phase that disc count belongs to
+    private final int[][] tableOfDiscs = new int[65][];
+    // phaseOfDiscs[discs] is the phase that disc count belongs to
+    private final int[] phaseOfDiscs = new int[65];
+    // classMasks[phase][k] holds the squares that weigh classWeights[phase][k], zero weights are left out
+    private final long[][] classMasks;
+    private final int[][] classWeights;
+
+    /**
+     * @param maxDiscs the largest disc count of each phase, increasing and ending at 64
+     * @param tables one 8x8 table per phase, indexed [x][y] like Constants.BOARD_WEIGHTS
+     */
+    public PhaseWeights(int[] maxDiscs, int[][][] tables) {
+        if (maxDiscs.length == 0 || maxDiscs.length != tables.length) {
+            throw new IllegalArgumentException("Error: Every phase needs exactly one weight table");
+        }
+        if (maxDiscs[maxDiscs.length - 1] != 64) {
+            throw new IllegalArgumentException("Error: The last phase should reach 64 discs");
+        }
+        this.maxDiscs = maxDiscs.clone();
+        this.tables = new int[tables.length][64];
+        for (int phase = 0; phase < tables.length; phase++) {
+            if (phase > 0 && maxDiscs[phase] <= maxDiscs[phase - 1]) {
+                throw new IllegalArgumentException("Error: Phases should be listed by increasing disc count");
+            }
+            if (tables[phase].length != 8) {
+                throw new IllegalArgumentException("Error: A weight table should have 8 rows");
+            }
+            for (int x = 0; x < 8; x++) {
+                if (tables[phase][x].length != 8) {
+                    throw new IllegalArgumentException("Error: A weight table should have 8 columns");
+                }
+                for (int y = 0; y < 8; y++) {
+                    this.tables[phase][Bitboard.square(x, y)] = tables[phase][x][y];
+                }
+            }
+        }
+        int phase = 0;
+        for (int discs = 0; discs <= 64; discs++) {
+            while (discs > maxDiscs[phase]) {
+                phase++;
+            }
+            tableOfDiscs[discs] = this.tables[phase];
+            phaseOfDiscs[discs] = phase;
+        }
+        classMasks = new long[tables.length][];
+        classWeights = new int[tables.length][];
+        for (phase = 0; phase < tables.length; phase++) {
+            splitClasses(phase);
+        }
+    }
+
+    // Gathers the squares of a phase table into one mask per distinct non-zero weight
+    private void splitClasses(int phase) {
+        int[] table = tables[phase];
+        long[] masks = new long[64];
+        int[] values = new int[64];
+        int classes = 0;
+        for (int square = 0; square < 64; square++) {
+            if (table[square] == 0) {
+                continue;
+            }
+            int k = 0;
+            while (k < classes && values[k] != table[square]) {
+                k++;
+            }
+            if (k == classes) {
+                values[classes++] = table[square];
+            }
+            masks[k] |= Bitboard.bit(square);
+        }
+        classMasks[phase] = Arrays.copyOf(masks, classes);
+        classWeights[phase] = Arrays.copyOf(values, classes);
+    }
+
+    /**
+     * @return weights that use one table for the whole game
+     */
+    public static PhaseWeights single(int[][] table) {
+        return new PhaseWeights(new int[]{64}, new int[][][]{table});
+    }
+
+    /**
+     * @return the tables of the default configuration resource, or Constants.BOARD_WEIGHTS for the
+     *         whole game if the resource is not on the class path
+     */
+    public static PhaseWeights getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    // Loaded on first use so a missing or broken resource only matters to code that asks for it
+    private static final class DefaultHolder {
+        private static final PhaseWeights DEFAULT = loadDefault();
+
+        private static PhaseWeights loadDefault() {
+            try (InputStream in = PhaseWeights.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (in == null) {
+                    return single(Constants.BOARD_WEIGHTS);
+                }
+                return load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new IllegalStateException("Error: Cannot read " + DEFAULT_RESOURCE, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a configuration file.
+     * @param filePath the file to read
+     */
+    public static PhaseWeights load(String filePath) throws IOException {
+        try (Reader reader = new FileReader(filePath, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Reads a configuration in the text format described above.
+     * @param reader the configuration text
+     * @throws IOException if it cannot be read or is not in the expected format
+     */
+    public static PhaseWeights load(Reader reader) throws IOException {
+        List<Integer> limits = new ArrayList<>();
+        List<int[][]> tables = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        int[][] table = null;
+        int row = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            try {
+                if (fields[0].equals("phase")) {
+                    if (table != null && row < 8) {
+                        throw new IOException("Error: Phase " + limits.get(limits.size() - 1) + " has fewer than 8 rows");
+                    }
+                    limits.add(Integer.parseInt(fields[1]));
+                    table = new int[8][8];
+                    tables.add(table);
+                    row = 0;
+                } else {
+                    if (table == null || row == 8 || fields.length != 8) {
+                        throw new IOException("Error: Unexpected weight row: " + line);
+                    }
+                    for (int y = 0; y < 8; y++) {
+                        table[row][y] = Integer.parseInt(fields[y]);
+                    }
+                    row++;
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Error: Cannot read the line: " + line, e);
+            }
+        }
+        if (table == null || row < 8) {
+            throw new IOException("Error: The configuration should end with a complete phase");
+        }
+        int[] maxDiscs = new int[limits.size()];
+        for (int i = 0; i < maxDiscs.length; i++) {
+            maxDiscs[i] = limits.get(i);
+        }
+        try {
+            return new PhaseWeights(maxDiscs, tables.toArray(new int[0][][]));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the flat table, indexed by square, used when the board holds this many discs
+     */
+    public int[] table(int discs) {
+        return tableOfDiscs[discs];
+    }
+
+    /**
+     * Scores one side against the other with the table of the current phase.
+     * @param own the discs of the side to score for
+     * @param opp the discs of the other side
+     * @return the weights of own discs minus the weights of opp discs
+     */
+    public int score(long own, long opp) {
+        int phase = phaseOfDiscs[Long.bitCount(own | opp)];
+        long[] masks = classMasks[phase];
+        int[] values = classWeights[phase];
+        int score = 0;
+        for (int k = 0; k < masks.length; k++) {
+            score += values[k] * (Long.bitCount(own & masks[k]) - Long.bitCount(opp & masks[k]));
+        }
+        return score;
+    }
+
+    public int getPhaseCount() {
+        return tables.length;
+    }
+
+    /**
+     * @return the largest disc count of a phase
+     */
+    public int getMaxDiscs(int phase) {
+        return maxDiscs[phase];
+    }
+
+    /**
+     * @return the number of weight classes of a phase, the popcount pairs a score costs
+     */
+    public int getClassCount(int phase) {
+        return classMasks[phase].length;
+    }
+}
@@ -95,6 +95,46 @@ public abstract class Player {
         return allAvailableMoves;
     }
 
+    /**
+     * Gets the available moves for this player without building any collections.
+     * Bit (x * 8 + y) of the result is set when board[x][y] is a valid destination.
+     * @param board the board that will be evaluated for possible moves for this player
+     * @return a mask of all valid destinations, 0 if there are none
+     */
+    public long getAvailableMoveMask(BoardSpace[][] board) {
+        if (board == null || board.length == 0) {
+            return 0;
+        }
+        return Bitboard.legalMoves(Bitboard.maskOf(board, color), Bitboard.maskOf(board, getOpponentColor()));
+    }
+
+    /**
+     * Writes the available destinations for this player into a reusable buffer.
+     * @param board the board that will be evaluated for possible moves for this player
+     * @param squares buffer of at least 64 entries receiving square indices (x * 8 + y)
+     * @return the number of destinations written into the buffer
+     */
+    public int getAvailableMoves(BoardSpace[][] board, int[] squares) {
+        return Bitboard.toSquares(getAvailableMoveMask(board), squares);
+    }
+
+    /**
+     * Computes the spaces that flip if this player places on a square, on demand.
+     * @param board the board to place on
+     * @param square the square index (x * 8 + y) of the destination
+     * @return a mask of the opponent spaces that would flip, 0 if the move is not valid
+     */
+    public long getFlips(BoardSpace[][] board, int square) {
+        return Bitboard.flips(Bitboard.maskOf(board, color), Bitboard.maskOf(board, getOpponentColor()), square);
+    }
+
+    /**
+     * @return the color of the other player
+     */
+    public BoardSpace.SpaceType getOpponentColor() {
+        return (color == BoardSpace.SpaceType.BLACK) ? BoardSpace.SpaceType.WHITE : BoardSpace.SpaceType.BLACK;
+    }
+
     /**
      * Create a helper method to help us determine whether we are staying within valid board bounds
      * @param row the row that we are potentially on
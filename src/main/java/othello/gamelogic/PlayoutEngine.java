@@ -0,0 +1,89 @@
+package othello.gamelogic;
+
+/**
+ * Plays random games to the end on a pair of disc masks, for the playouts of the MCTS searches.
+ * Each move is a random set bit of the legal move mask and is flipped in place with the ray
+ * tables, so a playout allocates nothing and never touches a BoardSpace.
+ * <p>
+ * The random numbers come from a xorshift64* generator held in the engine. An engine is not
+ * thread-safe; every thread that plays out keeps its own, for example one per MCTS worker.
+ */
+public final class PlayoutEngine {
+
+    private long state;
+    private long playouts;
+
+    /**
+     * @param seed the seed of the random moves, any value including 0
+     */
+    public PlayoutEngine(long seed) {
+        // Mixed so nearby seeds start far apart, and never zero, which xorshift cannot leave
+        long mixed = (seed ^ 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        this.state = (mixed == 0) ? 0x9E3779B97F4A7C15L : mixed;
+    }
+
+    /**
+     * @return the next 64 random bits
+     */
+    public long nextLong() {
+        state ^= state >>> 12;
+        state ^= state << 25;
+        state ^= state >>> 27;
+        return state * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * @return a random int from 0 up to but not including bound, which should be positive
+     */
+    public int nextInt(int bound) {
+        // The high 32 bits scaled by the bound, the bias is far below anything a playout can notice
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * @return a random square of a non-empty mask
+     */
+    public int randomSquare(long mask) {
+        return Bitboard.nthSquare(mask, nextInt(Long.bitCount(mask)));
+    }
+
+    /**
+     * Plays random moves for both sides until neither can move, passing when a side has no move.
+     * @param own the discs of the side to move
+     * @param opp the discs of the other side
+     * @return the final discs of the side that was to move minus the discs of the other side
+     */
+    public int playout(long own, long opp) {
+        playouts++;
+        boolean swapped = false;
+        boolean passed = false;
+        while (true) {
+            long moves = Bitboard.legalMoves(own, opp);
+            if (moves == 0) {
+                if (passed) {
+                    break;
+                }
+                passed = true;
+            } else {
+                passed = false;
+                int square = randomSquare(moves);
+                long flips = Bitboard.flips(own, opp, square);
+                own |= flips | Bitboard.bit(square);
+                opp &= ~flips;
+            }
+            long swap = own;
+            own = opp;
+            opp = swap;
+            swapped = !swapped;
+        }
+        int difference = Long.bitCount(own) - Long.bitCount(opp);
+        return swapped ? -difference : difference;
+    }
+
+    /**
+     * @return the number of playouts this engine has played
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+}
@@ -0,0 +1,21 @@
+package othello.gamelogic;
+
+/**
+ * Static evaluation used at the leaves of the bitboard search.
+ */
+public interface PositionEvaluator {
+
+    /**
+     * @param position the position to score
+     * @return the score from the point of view of the side to move, higher is better
+     */
+    int evaluate(SearchPosition position);
+
+    /**
+     * Called once on the position a search runs on, before the search makes any move on it, so an
+     * evaluator can attach state that the position keeps up to date move by move.
+     * @param position the root position of the search
+     */
+    default void prepare(SearchPosition position) {
+    }
+}
@@ -0,0 +1,391 @@
+package othello.gamelogic;
+
+/**
+ * Proof-number search: proves or disproves that the side to move wins, without a depth limit
+ * and without an evaluation function.
+ * Every node of the tree counts how many leaves would still have to be proven (proof number)
+ * or disproven (disproof number) to settle it, and the search always expands the leaf that
+ * settles the root with the least work. Unlike alpha-beta it does not depend on trying good
+ * moves first; it follows whichever lines turn out narrow, such as forced sequences and
+ * positions where one side has few moves.
+ * <p>
+ * Positions with only a few empties left are not added to the tree at all but settled on the
+ * spot by a null-window EndgameSolver search, which is much faster there than growing the tree
+ * and keeps the memory for the part of the game where proof numbers pay off.
+ * The tree lives in preallocated arrays sized from a memory cap, and every call stops after a
+ * fixed number of expansions, so a call never uses more than the memory and time it was given.
+ * Nodes that get settled are stored by Zobrist hash in a table of disc-difference bounds; the
+ * table is kept between calls so a later move starts from everything proven before.
+ */
+public class ProofNumberSearch {
+
+    /** The side to move wins. */
+    public static final int WIN = 1;
+    /** Neither side can force a win. */
+    public static final int DRAW = 0;
+    /** The other side wins. */
+    public static final int LOSS = -1;
+    /** The node budget or memory ran out before the position was settled. */
+    public static final int UNKNOWN = 2;
+
+    /** Default number of leaf expansions per call, about a second of work. */
+    public static final int DEFAULT_NODE_BUDGET = 10_000;
+
+    /** Default number of empties at or below which Minimax and MCTS ask the prover. */
+    public static final int DEFAULT_ORACLE_EMPTIES = 24;
+
+    /** Default memory for the search tree in megabytes. */
+    public static final int DEFAULT_MEMORY_MB = 16;
+
+    // At or below this many empties a leaf is settled by the endgame solver
+    private static final int SOLVER_EMPTIES = 12;
+
+    // Proof and disproof numbers saturate here so sums cannot overflow
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    // Memory per tree node: discs, hash, proof and disproof numbers, links, move and flags
+    private static final int BYTES_PER_NODE = 8 + 8 + 8 + 4 + 4 + 4 + 4 + 1 + 1 + 1;
+
+    private final int maxNodes;
+    private final TranspositionTable proofTable;
+    private final EndgameSolver solver = new EndgameSolver(new TranspositionTable(1));
+
+    // The tree as parallel arrays; children of a node are stored next to each other
+    private final long[] black;
+    private final long[] white;
+    private final long[] keys;
+    private final int[] proof;
+    private final int[] disproof;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final byte[] childCount;
+    private final byte[] move;
+    private final boolean[] blackToMove;
+    private int size;
+
+    // Set for the duration of one proof attempt
+    private boolean attackerIsBlack;
+    private int goal;
+    private int expansions;
+    private int totalExpansions;
+    private int proofMove = SearchPosition.PASS;
+
+    public ProofNumberSearch() {
+        this(DEFAULT_MEMORY_MB, new TranspositionTable(Minimax.DEFAULT_HASH_MB));
+    }
+
+    /**
+     * @param memoryMb the memory the search tree may use, in megabytes
+     * @param proofTable the table settled positions are cached in; its scores are disc differences,
+     *                   so it must not be shared with the midgame search
+     */
+    public ProofNumberSearch(int memoryMb, TranspositionTable proofTable) {
+        if (memoryMb < 1) {
+            throw new IllegalArgumentException("Error: Proof tree memory should be at least 1 MB");
+        }
+        if (proofTable == null) {
+            throw new IllegalArgumentException("Error: Proof-number search needs a table to cache proofs in");
+        }
+        this.maxNodes = (int) Math.min(((long) memoryMb << 20) / BYTES_PER_NODE, Integer.MAX_VALUE - 64);
+        this.proofTable = proofTable;
+        this.black = new long[maxNodes];
+        this.white = new long[maxNodes];
+        this.keys = new long[maxNodes];
+        this.proof = new int[maxNodes];
+        this.disproof = new int[maxNodes];
+        this.parent = new int[maxNodes];
+        this.firstChild = new int[maxNodes];
+        this.childCount = new byte[maxNodes];
+        this.move = new byte[maxNodes];
+        this.blackToMove = new boolean[maxNodes];
+    }
+
+    /**
+     * Tries to find the game-theoretic result of a position with the default node budget.
+     * @see #prove(SearchPosition, int)
+     */
+    public int prove(SearchPosition position) {
+        return prove(position, DEFAULT_NODE_BUDGET);
+    }
+
+    /**
+     * Tries to find the game-theoretic result of a position. It first tries to prove a win; if the
+     * win is disproven, it tries to prove at least a draw with what is left of the budget.
+     * @param position the position to prove, it is not changed
+     * @param nodeBudget the largest number of leaves to expand
+     * @return WIN, DRAW or LOSS for the side to move, or UNKNOWN if the budget or the memory ran out
+     */
+    public int prove(SearchPosition position, int nodeBudget) {
+        if (nodeBudget < 1) {
+            throw new IllegalArgumentException("Error: Node budget should be at least 1");
+        }
+        totalExpansions = 0;
+        proofMove = SearchPosition.PASS;
+        proofTable.newSearch();
+
+        int win = proveAtLeast(position, 1, nodeBudget);
+        if (win != LOSS) {
+            return win == WIN ? WIN : UNKNOWN;
+        }
+        int draw = proveAtLeast(position, 0, nodeBudget - totalExpansions);
+        if (draw == WIN) {
+            return DRAW;
+        }
+        return draw == LOSS ? LOSS : UNKNOWN;
+    }
+
+    // Proves (WIN) or disproves (LOSS) that the side to move ends at least goal discs ahead
+    private int proveAtLeast(SearchPosition position, int target, int budget) {
+        if (budget < 1) {
+            return UNKNOWN;
+        }
+        goal = target;
+        attackerIsBlack = position.isBlackToMove();
+        expansions = 0;
+        size = 0;
+        int root = newNode(position.getBlack(), position.getWhite(), position.isBlackToMove(),
+                position.getHash(), -1, SearchPosition.PASS, true);
+        // A root settled by the cache still needs its children to tell which move settles it
+        if ((proof[root] == 0 || disproof[root] == 0) && position.legalMoves() != 0) {
+            expand(root);
+            updateAncestors(root);
+        }
+
+        while (proof[root] != 0 && disproof[root] != 0 && expansions < budget) {
+            int node = mostProvingNode(root);
+            if (!expand(node)) {
+                break;
+            }
+            updateAncestors(node);
+        }
+        totalExpansions += expansions;
+
+        if (proof[root] == 0) {
+            proofMove = settlingMove(root, true);
+            return WIN;
+        } else if (disproof[root] == 0) {
+            proofMove = settlingMove(root, false);
+            return LOSS;
+        }
+        return UNKNOWN;
+    }
+
+    // Creates a node and sets its numbers from the game result, the cache, the endgame solver if
+    // solve is set, or else its mobility
+    private int newNode(long blackDiscs, long whiteDiscs, boolean blackMoves, long key, int parentNode, int square,
+                        boolean solve) {
+        int node = size++;
+        black[node] = blackDiscs;
+        white[node] = whiteDiscs;
+        blackToMove[node] = blackMoves;
+        keys[node] = key;
+        parent[node] = parentNode;
+        firstChild[node] = -1;
+        childCount[node] = 0;
+        move[node] = (byte) square;
+
+        long player = blackMoves ? blackDiscs : whiteDiscs;
+        long opponent = blackMoves ? whiteDiscs : blackDiscs;
+        long moves = Bitboard.legalMoves(player, opponent);
+        if (moves == 0 && Bitboard.legalMoves(opponent, player) == 0) {
+            int attackerDifference = Long.bitCount(attackerIsBlack ? blackDiscs : whiteDiscs)
+                    - Long.bitCount(attackerIsBlack ? whiteDiscs : blackDiscs);
+            setSettled(node, attackerDifference >= goal);
+            storeProof(node, Long.bitCount(player) - Long.bitCount(opponent), TranspositionTable.EXACT);
+            return node;
+        }
+        int empties = 64 - Long.bitCount(blackDiscs | whiteDiscs);
+        int cached = cachedResult(node, empties);
+        if (cached != UNKNOWN) {
+            setSettled(node, cached == WIN);
+            return node;
+        }
+        if (solve && empties <= SOLVER_EMPTIES && parentNode >= 0) {
+            // The attacker reaching the goal is the defender not reaching one disc more than minus the goal
+            boolean proven = isAttackerNode(node) ? solver.reaches(player, opponent, goal)
+                    : !solver.reaches(player, opponent, -goal + 1);
+            setSettled(node, proven);
+            storeSettled(node);
+            return node;
+        }
+        // Mobility initialisation: an attacker node needs one good move, a defender node all of them refuted
+        int branches = Math.max(1, Long.bitCount(moves));
+        if (isAttackerNode(node)) {
+            proof[node] = 1;
+            disproof[node] = branches;
+        } else {
+            proof[node] = branches;
+            disproof[node] = 1;
+        }
+        return node;
+    }
+
+    // Adds the children of a leaf, a single pass child if the side to move has no move
+    private boolean expand(int node) {
+        long blackDiscs = black[node];
+        long whiteDiscs = white[node];
+        boolean blackMoves = blackToMove[node];
+        long player = blackMoves ? blackDiscs : whiteDiscs;
+        long opponent = blackMoves ? whiteDiscs : blackDiscs;
+        long moves = Bitboard.legalMoves(player, opponent);
+        int count = Math.max(1, Long.bitCount(moves));
+        if (size + count > maxNodes) {
+            return false;
+        }
+        expansions++;
+        firstChild[node] = size;
+        childCount[node] = (byte) count;
+        if (moves == 0) {
+            newNode(blackDiscs, whiteDiscs, !blackMoves, keys[node] ^ Zobrist.SIDE_KEY, node, SearchPosition.PASS, true);
+            return true;
+        }
+        // Once one child settles the node the others cannot change it, so they skip the solver
+        boolean attacker = isAttackerNode(node);
+        boolean settled = false;
+        for (long rest = moves; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            long flipped = Bitboard.flips(player, opponent, square);
+            long nextPlayer = player | flipped | Bitboard.bit(square);
+            long nextOpponent = opponent & ~flipped;
+            long key = keys[node] ^ Zobrist.placeKey(blackMoves, square) ^ Zobrist.flipKey(flipped) ^ Zobrist.SIDE_KEY;
+            int child = newNode(blackMoves ? nextPlayer : nextOpponent, blackMoves ? nextOpponent : nextPlayer,
+                    !blackMoves, key, node, square, !settled);
+            settled |= attacker ? proof[child] == 0 : disproof[child] == 0;
+        }
+        return true;
+    }
+
+    // Follows the child that holds the node's proof number at attacker nodes and its disproof number
+    // at defender nodes, down to a leaf
+    private int mostProvingNode(int node) {
+        while (firstChild[node] >= 0) {
+            int first = firstChild[node];
+            int end = first + childCount[node];
+            boolean attacker = isAttackerNode(node);
+            int next = first;
+            for (int child = first; child < end; child++) {
+                if (attacker ? proof[child] == proof[node] : disproof[child] == disproof[node]) {
+                    next = child;
+                    break;
+                }
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    // Recomputes the numbers from the expanded node up to the root, stopping once nothing changes
+    private void updateAncestors(int node) {
+        while (node >= 0) {
+            int first = firstChild[node];
+            int end = first + childCount[node];
+            int minimum = INFINITY;
+            long sum = 0;
+            boolean attacker = isAttackerNode(node);
+            for (int child = first; child < end; child++) {
+                minimum = Math.min(minimum, attacker ? proof[child] : disproof[child]);
+                sum += attacker ? disproof[child] : proof[child];
+            }
+            int newProof = attacker ? minimum : (int) Math.min(sum, INFINITY);
+            int newDisproof = attacker ? (int) Math.min(sum, INFINITY) : minimum;
+            if (newProof == proof[node] && newDisproof == disproof[node]) {
+                return;
+            }
+            proof[node] = newProof;
+            disproof[node] = newDisproof;
+            if (newProof == 0 || newDisproof == 0) {
+                storeSettled(node);
+            }
+            node = parent[node];
+        }
+    }
+
+    private boolean isAttackerNode(int node) {
+        return blackToMove[node] == attackerIsBlack;
+    }
+
+    private void setSettled(int node, boolean proven) {
+        proof[node] = proven ? 0 : INFINITY;
+        disproof[node] = proven ? INFINITY : 0;
+    }
+
+    // The attacker reaching the goal is a bound on the score of the side to move at the node
+    private void storeSettled(int node) {
+        boolean proven = proof[node] == 0;
+        if (isAttackerNode(node)) {
+            storeProof(node, proven ? goal : goal - 1, proven ? TranspositionTable.LOWER : TranspositionTable.UPPER);
+        } else {
+            storeProof(node, proven ? -goal : -goal + 1, proven ? TranspositionTable.UPPER : TranspositionTable.LOWER);
+        }
+    }
+
+    private void storeProof(int node, int score, int bound) {
+        int empties = 64 - Long.bitCount(black[node] | white[node]);
+        proofTable.store(keys[node], empties, bound, score, TranspositionTable.NO_MOVE);
+    }
+
+    // WIN if the cache proves the attacker reaches the goal from this node, LOSS if it disproves it
+    private int cachedResult(int node, int empties) {
+        long entry = proofTable.probe(keys[node]);
+        if (entry == TranspositionTable.MISS || TranspositionTable.depth(entry) != empties) {
+            return UNKNOWN;
+        }
+        int score = TranspositionTable.score(entry);
+        int bound = TranspositionTable.bound(entry);
+        // The bound is on the score of the side to move, turn it into one on the attacker's score
+        boolean attacker = isAttackerNode(node);
+        int attackerScore = attacker ? score : -score;
+        boolean lower = (bound == TranspositionTable.EXACT) || (bound == TranspositionTable.LOWER) == attacker;
+        boolean upper = (bound == TranspositionTable.EXACT) || (bound == TranspositionTable.UPPER) == attacker;
+        if (lower && attackerScore >= goal) {
+            return WIN;
+        } else if (upper && attackerScore < goal) {
+            return LOSS;
+        }
+        return UNKNOWN;
+    }
+
+    // The root move that proves a win, or any move when the root is disproven
+    private int settlingMove(int root, boolean proven) {
+        int first = firstChild[root];
+        if (first < 0) {
+            return SearchPosition.PASS;
+        }
+        for (int child = first; child < first + childCount[root]; child++) {
+            if (!proven || proof[child] == 0) {
+                return move[child];
+            }
+        }
+        return move[first];
+    }
+
+    /**
+     * @return the move that achieves the result of the last prove call: a winning move after WIN, a
+     *         drawing move after DRAW, or some move after LOSS; PASS if the side to move has no move
+     *         or the result is UNKNOWN
+     */
+    public int getProofMove() {
+        return proofMove;
+    }
+
+    /**
+     * @return the number of leaves expanded by the last prove call
+     */
+    public int getExpansions() {
+        return totalExpansions;
+    }
+
+    /**
+     * @return the largest number of tree nodes the memory cap allows
+     */
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * @return the table that settled positions are cached in
+     */
+    public TranspositionTable getProofTable() {
+        return proofTable;
+    }
+}
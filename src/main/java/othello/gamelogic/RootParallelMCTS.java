@@ -0,0 +1,146 @@
+package othello.gamelogic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Root-parallel Monte Carlo tree search: every worker thread grows its own MCTS tree from the same
+ * board with its own random source, so the threads share nothing while they search. When all of
+ * them are done, the visit counts of the root children are added up move by move and the move
+ * with the most visits over all trees is played.
+ * <p>
+ * Each worker runs the full number of simulations asked for, so with one core per thread a move
+ * takes as long as a single-threaded search and is backed by that many times more playouts. The
+ * workers keep the subtree of the move that was played, like a single MCTS does, so the next
+ * search continues from the opponent's reply.
+ */
+public class RootParallelMCTS {
+
+    private final Player self;
+    private final Player op;
+    private final MCTS[] workers;
+    private final ExecutorService pool;
+    // visits[square] of the last search, summed over the trees
+    private final int[] visits = new int[64];
+    private long playouts;
+
+    /**
+     * @param threads the number of worker threads and trees
+     * @param self the player the move is chosen for
+     * @param op the other player
+     * @param seed the seed the worker random sources are drawn from
+     */
+    public RootParallelMCTS(int threads, Player self, Player op, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        this.self = self;
+        this.op = op;
+        this.workers = new MCTS[threads];
+        Random seeds = new Random(seed);
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new MCTS(0, self, op, null);
+            workers[i].setRandom(new Random(seeds.nextLong()));
+        }
+        // Daemon threads so an idle pool never keeps the program from exiting
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "root-parallel-mcts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the board on every worker and picks the move with the most visits over all trees.
+     * @param board the current board, self is to move
+     * @param simulations the number of simulations each worker runs
+     * @return the chosen space of the board, or null if self has no move
+     */
+    public BoardSpace search(BoardSpace[][] board, int simulations) {
+        List<Future<MCTSNode>> running = new ArrayList<>(workers.length);
+        for (MCTS worker : workers) {
+            running.add(pool.submit(() -> worker.search(board, simulations)));
+        }
+        Arrays.fill(visits, 0);
+        playouts = 0;
+        for (Future<MCTSNode> tree : running) {
+            MCTSNode root = waitFor(tree);
+            for (MCTSNode child : root.getMctsChildren()) {
+                visits[Bitboard.square(child.getSpace().getX(), child.getSpace().getY())] += child.getTotalSimulations();
+            }
+            playouts += root.getTotalSimulations();
+        }
+        int best = -1;
+        for (int square = 0; square < 64; square++) {
+            if (visits[square] > 0 && (best < 0 || visits[square] > visits[best])) {
+                best = square;
+            }
+        }
+        for (MCTS worker : workers) {
+            worker.keepSubtree(best);
+        }
+        return (best < 0) ? null : board[Bitboard.getX(best)][Bitboard.getY(best)];
+    }
+
+    private static MCTSNode waitFor(Future<MCTSNode> tree) {
+        try {
+            return tree.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Error: Interrupted while searching", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error: A search thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Gives every worker its own proof-number search oracle, or takes them away.
+     * @param enabled true to prove positions near the end instead of playing them out
+     */
+    public void setProofOracle(boolean enabled) {
+        for (MCTS worker : workers) {
+            // The oracle's table is not shared, so each tree gets a small one of its own
+            worker.setProver(enabled ? new ProofNumberSearch(1, new TranspositionTable(1)) : null);
+        }
+    }
+
+    /**
+     * @return the visits of a square's move in the last search, summed over the trees
+     */
+    public int getVisits(int square) {
+        return visits[square];
+    }
+
+    /**
+     * @return the simulations the root of every tree holds after the last search, summed, including
+     *         those reused from the previous move
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    public Player getSelf() {
+        return self;
+    }
+
+    public Player getOp() {
+        return op;
+    }
+
+    /**
+     * Stops the worker threads. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,520 @@
+package othello.gamelogic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for the bitboard search, run from the command line:
+ * {@code java othello.gamelogic.SearchBenchmark [depth]}.
+ * Every benchmark uses the same fixed set of positions so runs can be compared.
+ */
+public class SearchBenchmark {
+
+    // Seed of the benchmark position set
+    private static final long POSITION_SEED = 5940;
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 7;
+        List<Bitboard> positions = positions(30, 20, 36);
+        flipBenchmark(positions(200, 10, 50), 2000);
+        batchBenchmark(positions(4096, 5, 55), 200);
+        orderingBenchmark(positions, depth);
+        windowBenchmark(positions, depth);
+        evaluatorBenchmark(positions, depth - 1);
+        threadBenchmark(positions, depth + 1);
+        endgameBenchmark(endgamePositions(10, EndgameSolver.DEFAULT_THRESHOLD), false);
+        endgameBenchmark(endgamePositions(10, EndgameSolver.DEFAULT_WLD_THRESHOLD), true);
+        parallelEndgameBenchmark(endgamePositions(10, EndgameSolver.DEFAULT_THRESHOLD + 2));
+        playoutBenchmark(positions(20, 10, 30), 200);
+        mctsBenchmark(positions(5, 10, 30), 2000);
+        nodeStoreBenchmark(Bitboard.initial(), 20000);
+    }
+
+    /**
+     * Creates a reproducible set of midgame positions by playing random moves from the start.
+     * @param count the number of positions
+     * @param minPlies the fewest random moves played
+     * @param maxPlies the most random moves played
+     * @return positions where the side to move has a legal move
+     */
+    public static List<Bitboard> positions(int count, int minPlies, int maxPlies) {
+        Random random = new Random(POSITION_SEED);
+        List<Bitboard> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            int plies = minPlies + random.nextInt(maxPlies - minPlies + 1);
+            Bitboard position = Bitboard.initial();
+            for (int i = 0; i < plies && !position.isGameOver(); i++) {
+                long moves = position.legalMoves();
+                position = (moves == 0) ? position.pass()
+                        : position.play(Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))));
+            }
+            if (position.legalMoves() != 0) {
+                positions.add(position);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Creates a reproducible set of endgame positions: the first moves are random, the rest are
+     * chosen by a shallow search so the positions look like ones from real games.
+     * @param count the number of positions
+     * @param empties the number of empty squares in every position
+     * @return positions with that many empties where the game is not over
+     */
+    public static List<Bitboard> endgamePositions(int count, int empties) {
+        Random random = new Random(POSITION_SEED);
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        List<Bitboard> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            SearchPosition position = new SearchPosition(Bitboard.initial());
+            while (position.getEmptyCount() > empties && !position.isGameOver()) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    position.makePass();
+                } else if (position.getEmptyCount() > 50) {
+                    position.makeMove(Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))));
+                } else {
+                    position.makeMove(search.search(position, 4).getBestMove());
+                }
+            }
+            if (position.getEmptyCount() == empties && !position.isGameOver()) {
+                positions.add(position.toBitboard());
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Times the endgame solver on each position.
+     * @param winLossDraw true to only solve for win, loss or draw, false for the exact disc difference
+     */
+    public static void endgameBenchmark(List<Bitboard> positions, boolean winLossDraw) {
+        System.out.println((winLossDraw ? "Win/loss/draw" : "Exact") + " endgame solver, " + positions.size()
+                + " positions");
+        EndgameSolver solver = new EndgameSolver();
+        long totalNodes = 0;
+        long totalMillis = 0;
+        for (Bitboard position : positions) {
+            long start = System.nanoTime();
+            SearchResult result = winLossDraw ? solver.solveWinLossDraw(new SearchPosition(position))
+                    : solver.solve(new SearchPosition(position));
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+            totalNodes += result.getNodes();
+            totalMillis += millis;
+            System.out.printf("%2d empties score %4d  nodes %12d  time %d ms%n",
+                    result.getDepth(), result.getScore(), result.getNodes(), millis);
+        }
+        System.out.printf("total                      nodes %12d  time %d ms%n", totalNodes, totalMillis);
+    }
+
+    /**
+     * Measures the serial solver against the parallel solver with 1, 2, 4 and 8 threads on the same
+     * positions, each run with an empty table. Speedups are only meaningful up to the number of
+     * available cores.
+     */
+    public static void parallelEndgameBenchmark(List<Bitboard> positions) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Parallel endgame solver, " + positions.size() + " positions, " + cores + " cores");
+        EndgameSolver serial = new EndgameSolver(new TranspositionTable(64));
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        for (Bitboard position : positions) {
+            serial.getTranspositionTable().clear();
+            totalNodes += serial.solve(new SearchPosition(position)).getNodes();
+        }
+        long baseline = (System.nanoTime() - start) / 1_000_000L;
+        System.out.printf("serial                     nodes %12d  time %d ms%n", totalNodes, baseline);
+
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            ParallelEndgameSolver solver = new ParallelEndgameSolver(threads, new TranspositionTable(64));
+            totalNodes = 0;
+            start = System.nanoTime();
+            for (Bitboard position : positions) {
+                solver.getTranspositionTable().clear();
+                totalNodes += solver.solve(new SearchPosition(position)).getNodes();
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+            solver.shutdown();
+            System.out.printf("%2d threads                 nodes %12d  time %d ms  speedup %.2f%n",
+                    threads, totalNodes, millis, (double) baseline / Math.max(millis, 1));
+        }
+    }
+
+    /**
+     * Times the three ways of finding the discs a move flips on every legal move of the positions:
+     * walking the board one coordinate at a time as the BoardSpace code used to, the shift fills of
+     * Bitboard.shiftFlips, and the ray and between tables of Bitboard.flips.
+     * @param rounds how many times every move is flipped
+     */
+    public static void flipBenchmark(List<Bitboard> positions, int rounds) {
+        int moves = 0;
+        for (Bitboard position : positions) {
+            moves += Long.bitCount(position.legalMoves());
+        }
+        System.out.println("Flip calculation, " + moves + " moves, " + rounds + " rounds");
+        // Each variant runs twice and only the second run is timed, so all of them are compiled
+        for (int run = 0; run < 2; run++) {
+            for (int method = 0; method < 3; method++) {
+                long check = 0;
+                long start = System.nanoTime();
+                for (int round = 0; round < rounds; round++) {
+                    for (Bitboard position : positions) {
+                        long own = position.getPlayer();
+                        long opp = position.getOpponent();
+                        for (long rest = position.legalMoves(); rest != 0; rest &= rest - 1) {
+                            int square = Long.numberOfTrailingZeros(rest);
+                            check += (method == 0) ? walkFlips(own, opp, square)
+                                    : (method == 1) ? Bitboard.shiftFlips(own, opp, square)
+                                    : Bitboard.flips(own, opp, square);
+                        }
+                    }
+                }
+                long nanos = System.nanoTime() - start;
+                if (run == 1) {
+                    System.out.printf("%-26s %6.1f ns/move  check %d%n",
+                            new String[]{"coordinate walk", "shift fills", "ray tables"}[method],
+                            (double) nanos / ((long) rounds * moves), check);
+                }
+            }
+        }
+    }
+
+    // The flips found by stepping through the coordinates in each direction with bounds checks
+    private static long walkFlips(long own, long opp, int square) {
+        long flipped = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+                long run = 0;
+                int x = Bitboard.getX(square) + dx;
+                int y = Bitboard.getY(square) + dy;
+                while (x >= 0 && x < 8 && y >= 0 && y < 8 && (opp & Bitboard.bit(Bitboard.square(x, y))) != 0) {
+                    run |= Bitboard.bit(Bitboard.square(x, y));
+                    x += dx;
+                    y += dy;
+                }
+                if (x >= 0 && x < 8 && y >= 0 && y < 8 && (own & Bitboard.bit(Bitboard.square(x, y))) != 0) {
+                    flipped |= run;
+                }
+            }
+        }
+        return flipped;
+    }
+
+    /**
+     * Compares scoring positions one at a time the way the legacy minimax does, with
+     * Minimax.computeWeight on a BoardSpace board and the move masks of both players, against
+     * BatchEvaluator on disc masks, first with the square weights alone and then with mobility.
+     * @param rounds how many times every position is scored
+     */
+    public static void batchBenchmark(List<Bitboard> positions, int rounds) {
+        int count = positions.size();
+        long[] own = new long[count];
+        long[] opp = new long[count];
+        BoardSpace[][][] boards = new BoardSpace[count][][];
+        Player black = new HumanPlayer();
+        Player white = new HumanPlayer();
+        black.setColor(BoardSpace.SpaceType.BLACK);
+        white.setColor(BoardSpace.SpaceType.WHITE);
+        Player[] movers = new Player[count];
+        Player[] others = new Player[count];
+        for (int i = 0; i < count; i++) {
+            Bitboard position = positions.get(i);
+            own[i] = position.getPlayer();
+            opp[i] = position.getOpponent();
+            boards[i] = position.toBoardSpaces();
+            movers[i] = position.isBlackToMove() ? black : white;
+            others[i] = position.isBlackToMove() ? white : black;
+        }
+        Minimax minimax = new Minimax();
+        BatchEvaluator batch = new BatchEvaluator(minimax.getPhaseWeights());
+        int[] scores = new int[count];
+        System.out.println("Position scoring, " + count + " positions, " + rounds + " rounds");
+        // Each variant runs twice and only the second run is timed, so all of them are compiled
+        for (int run = 0; run < 2; run++) {
+            for (int method = 0; method < 4; method++) {
+                long check = 0;
+                long start = System.nanoTime();
+                for (int round = 0; round < rounds; round++) {
+                    if (method == 0) {
+                        for (int i = 0; i < count; i++) {
+                            scores[i] = minimax.computeWeight(boards[i], movers[i]);
+                        }
+                    } else if (method == 1) {
+                        batch.scores(own, opp, count, scores);
+                    } else if (method == 2) {
+                        for (int i = 0; i < count; i++) {
+                            scores[i] = minimax.computeWeight(boards[i], movers[i])
+                                    + 15 * (Long.bitCount(movers[i].getAvailableMoveMask(boards[i]))
+                                    - Long.bitCount(others[i].getAvailableMoveMask(boards[i])));
+                        }
+                    } else {
+                        batch.evaluate(own, opp, count, 15, scores);
+                    }
+                    check += scores[round % count];
+                }
+                long nanos = System.nanoTime() - start;
+                if (run == 1) {
+                    System.out.printf("%-26s %6.1f ns/position  %.1f M positions/s  check %d%n",
+                            new String[]{"computeWeight, one board", "weights, batch",
+                                    "+ mobility, one board", "+ mobility, batch"}[method],
+                            (double) nanos / ((long) rounds * count), (long) rounds * count * 1e3 / nanos, check);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares random playouts the way MCTS.simulation used to play them, copying the BoardSpace
+     * board after every move and recomputing both move masks from it, against PlayoutEngine.
+     * @param rounds how many playouts are played from every position
+     */
+    public static void playoutBenchmark(List<Bitboard> positions, int rounds) {
+        System.out.println("Random playouts, " + positions.size() + " positions, " + rounds + " rounds");
+        PlayoutEngine engine = new PlayoutEngine(POSITION_SEED);
+        Random random = new Random(POSITION_SEED);
+        MCTS boards = new MCTS();
+        // Each variant runs twice and only the second run is timed, so both of them are compiled
+        for (int run = 0; run < 2; run++) {
+            for (int method = 0; method < 2; method++) {
+                long check = 0;
+                long start = System.nanoTime();
+                for (Bitboard position : positions) {
+                    Player self = new HumanPlayer();
+                    Player op = new HumanPlayer();
+                    self.setColor(position.isBlackToMove() ? BoardSpace.SpaceType.BLACK : BoardSpace.SpaceType.WHITE);
+                    op.setColor(self.getOpponentColor());
+                    BoardSpace[][] board = position.toBoardSpaces();
+                    for (int round = 0; round < rounds; round++) {
+                        check += (method == 0) ? boardSpacePlayout(board, self, op, random, boards)
+                                : engine.playout(position.getPlayer(), position.getOpponent());
+                    }
+                }
+                long nanos = System.nanoTime() - start;
+                if (run == 1) {
+                    long playouts = (long) rounds * positions.size();
+                    System.out.printf("%-26s %8.1f us/playout  %.0f playouts/s  check %d%n",
+                            new String[]{"BoardSpace copies", "playout engine"}[method],
+                            nanos / 1e3 / playouts, playouts * 1e9 / nanos, check);
+                }
+            }
+        }
+    }
+
+    // The disc difference of a playout played the way MCTS.simulation used to, copying the board every move
+    private static int boardSpacePlayout(BoardSpace[][] board, Player self, Player op, Random random, MCTS boards) {
+        boolean selfTurn = true;
+        long selfMoves = self.getAvailableMoveMask(board);
+        long opMoves = op.getAvailableMoveMask(board);
+        while (selfMoves != 0 && opMoves != 0) {
+            Player mover = selfTurn ? self : op;
+            long moves = selfTurn ? selfMoves : opMoves;
+            board = boards.futureBoard(board, Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))), mover);
+            selfTurn = !selfTurn;
+            selfMoves = self.getAvailableMoveMask(board);
+            opMoves = op.getAvailableMoveMask(board);
+        }
+        return boards.countSpaces(board, self.getColor()) - boards.countSpaces(board, op.getColor());
+    }
+
+    /**
+     * Compares the memory per node and the speed of an MCTS tree of MCTSNode objects against the
+     * arrays of CompactMCTS, both grown with the same number of simulations. The memory of the
+     * object tree is measured as the heap it keeps alive, so it is approximate.
+     * @param simulations the simulations of each search
+     */
+    public static void nodeStoreBenchmark(Bitboard position, int simulations) {
+        System.out.println("MCTS node storage, " + simulations + " simulations");
+        Player self = new HumanPlayer();
+        Player op = new HumanPlayer();
+        self.setColor(position.isBlackToMove() ? BoardSpace.SpaceType.BLACK : BoardSpace.SpaceType.WHITE);
+        op.setColor(self.getOpponentColor());
+        MCTS objects = new MCTS(0, self, op, null);
+        objects.setRandom(new Random(POSITION_SEED));
+        long before = usedHeap();
+        long start = System.nanoTime();
+        MCTSNode root = objects.search(position.toBoardSpaces(), simulations);
+        long objectNanos = System.nanoTime() - start;
+        long objectBytes = usedHeap() - before;
+        int objectNodes = countNodes(root);
+        System.out.printf("%-26s nodes %9d  %6.0f bytes/node  %.0f playouts/s%n", "MCTSNode objects",
+                objectNodes, (double) objectBytes / objectNodes, simulations * 1e9 / objectNanos);
+        CompactMCTS compact = new CompactMCTS(CompactMCTS.DEFAULT_CAPACITY, POSITION_SEED);
+        start = System.nanoTime();
+        compact.search(position, simulations);
+        long compactNanos = System.nanoTime() - start;
+        System.out.printf("%-26s nodes %9d  %6d bytes/node  %.0f playouts/s%n", "MCTSNodeStore arrays",
+                compact.getStore().size(), MCTSNodeStore.BYTES_PER_NODE, simulations * 1e9 / compactNanos);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static int countNodes(MCTSNode node) {
+        int nodes = 1;
+        for (MCTSNode child : node.getMctsChildren()) {
+            nodes += countNodes(child);
+        }
+        return nodes;
+    }
+
+    /**
+     * Measures the playouts per second of root-parallel and tree-parallel MCTS with 1, 2, 4 and 8
+     * threads, both running the same number of simulations per thread.
+     * Speedups are only meaningful up to the number of available cores.
+     * @param simulations the simulations per thread and position
+     */
+    public static void mctsBenchmark(List<Bitboard> positions, int simulations) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Parallel MCTS, " + simulations + " simulations per thread, " + positions.size()
+                + " positions, " + cores + " cores");
+        for (int mode = 0; mode < 2; mode++) {
+            double baseline = 0;
+            for (int threads = 1; threads <= 8; threads *= 2) {
+                long totalPlayouts = 0;
+                long start = System.nanoTime();
+                for (Bitboard position : positions) {
+                    Player self = new HumanPlayer();
+                    Player op = new HumanPlayer();
+                    self.setColor(position.isBlackToMove() ? BoardSpace.SpaceType.BLACK : BoardSpace.SpaceType.WHITE);
+                    op.setColor(self.getOpponentColor());
+                    if (mode == 0) {
+                        RootParallelMCTS search = new RootParallelMCTS(threads, self, op, POSITION_SEED);
+                        search.search(position.toBoardSpaces(), simulations);
+                        totalPlayouts += search.getPlayouts();
+                        search.shutdown();
+                    } else {
+                        TreeParallelMCTS search = new TreeParallelMCTS(threads, self, op, POSITION_SEED);
+                        search.search(position.toBoardSpaces(), simulations * threads);
+                        totalPlayouts += search.getRoot().getTotalSimulations();
+                        search.shutdown();
+                    }
+                }
+                long nanos = System.nanoTime() - start;
+                double rate = totalPlayouts * 1e9 / nanos;
+                if (threads == 1) {
+                    baseline = rate;
+                }
+                System.out.printf("%-6s %2d threads        playouts %9d  time %d ms  %.0f playouts/s  speedup %.2f%n",
+                        (mode == 0) ? "root" : "tree", threads, totalPlayouts, nanos / 1_000_000L, rate, rate / baseline);
+            }
+        }
+    }
+
+    /**
+     * Compares the search speed of the evaluators at a fixed depth, and the pattern evaluation with
+     * its indices updated move by move against recomputing them at every leaf.
+     */
+    public static void evaluatorBenchmark(List<Bitboard> positions, int depth) {
+        System.out.println("Evaluators, depth " + depth + ", " + positions.size() + " positions");
+        PatternEvaluator patterns = new PatternEvaluator();
+        runEvaluator("square weights", new SquareWeightEvaluator(), positions, depth);
+        runEvaluator("features", new FeatureEvaluator(), positions, depth);
+        // Without prepare the position never tracks its patterns
+        runEvaluator("patterns, recomputed", patterns::evaluate, positions, depth);
+        runEvaluator("patterns, incremental", patterns, positions, depth);
+    }
+
+    private static void runEvaluator(String name, PositionEvaluator evaluator, List<Bitboard> positions, int depth) {
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        for (Bitboard position : positions) {
+            totalNodes += new AlphaBetaSearch(evaluator).search(new SearchPosition(position), depth).getNodes();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-26s nodes %12d  time %d ms  %.0f knodes/s%n",
+                name, totalNodes, nanos / 1_000_000L, totalNodes * 1e6 / nanos);
+    }
+
+    /**
+     * Compares node counts and effective branching factor of fixed-depth searches with square-order
+     * moves against the heuristic ordering, both with a transposition table.
+     */
+    public static void orderingBenchmark(List<Bitboard> positions, int depth) {
+        System.out.println("Move ordering, depth " + depth + ", " + positions.size() + " positions");
+        runOrdering("natural", new NaturalMoveOrdering(), positions, depth);
+        runOrdering("hash move only", new HeuristicMoveOrdering(true, false, false), positions, depth);
+        runOrdering("hash + killers", new HeuristicMoveOrdering(true, true, false), positions, depth);
+        runOrdering("hash + killers + history", new HeuristicMoveOrdering(), positions, depth);
+    }
+
+    /**
+     * Compares plain full-window alpha-beta, principal variation search, and PVS with aspiration
+     * windows, all with iterative deepening to the same depth.
+     */
+    public static void windowBenchmark(List<Bitboard> positions, int depth) {
+        System.out.println("Search windows, depth " + depth + ", " + positions.size() + " positions");
+        runWindows("alpha-beta", false, 0, positions, depth);
+        runWindows("PVS", true, 0, positions, depth);
+        runWindows("PVS + aspiration", true, AlphaBetaSearch.DEFAULT_ASPIRATION_WINDOW, positions, depth);
+    }
+
+    private static void runWindows(String name, boolean pvs, int window, List<Bitboard> positions, int depth) {
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        for (Bitboard position : positions) {
+            AlphaBetaSearch search = new AlphaBetaSearch();
+            search.setPrincipalVariationSearch(pvs);
+            search.setAspirationWindow(window);
+            search.setTranspositionTable(new TranspositionTable(16));
+            totalNodes += search.searchTimed(new SearchPosition(position), Long.MAX_VALUE / 2_000_000L, depth).getNodes();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        System.out.printf("%-26s nodes %12d  time %d ms%n", name, totalNodes, millis);
+    }
+
+    /**
+     * Measures the time Lazy SMP takes to complete a depth with 1, 2, 4, 8 and 16 threads.
+     * Speedups are only meaningful up to the number of available cores.
+     */
+    public static void threadBenchmark(List<Bitboard> positions, int depth) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Lazy SMP time to depth " + depth + ", " + positions.size() + " positions, "
+                + cores + " cores");
+        long baseline = 0;
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            LazySmpSearch search = new LazySmpSearch(threads, new TranspositionTable(64));
+            long totalNodes = 0;
+            long start = System.nanoTime();
+            for (Bitboard position : positions) {
+                search.getTranspositionTable().clear();
+                totalNodes += search.searchTimed(new SearchPosition(position), Long.MAX_VALUE / 2_000_000L, depth)
+                        .getNodes();
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+            search.shutdown();
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.printf("%2d threads                 nodes %12d  time %d ms  speedup %.2f%n",
+                    threads, totalNodes, millis, (double) baseline / Math.max(millis, 1));
+        }
+    }
+
+    private static void runOrdering(String name, MoveOrdering ordering, List<Bitboard> positions, int depth) {
+        long totalNodes = 0;
+        double totalBranching = 0;
+        long start = System.nanoTime();
+        for (Bitboard position : positions) {
+            AlphaBetaSearch search = new AlphaBetaSearch();
+            search.setMoveOrdering(ordering);
+            search.setTranspositionTable(new TranspositionTable(16));
+            // Iterative deepening fills the table and history the way a real move search does
+            SearchResult result = search.searchTimed(new SearchPosition(position), Long.MAX_VALUE / 2_000_000L, depth);
+            totalNodes += result.getNodes();
+            totalBranching += result.getEffectiveBranchingFactor();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        System.out.printf("%-26s nodes %12d  EBF %.2f  time %d ms%n",
+                name, totalNodes, totalBranching / positions.size(), millis);
+    }
+}
@@ -0,0 +1,235 @@
+package othello.gamelogic;
+
+/**
+ * Mutable bitboard position used by the search code.
+ * Moves are made and unmade in place: each makeMove pushes the placed square and the mask
+ * of flipped discs onto a fixed undo stack, so a whole search runs on one object
+ * without allocating anything per node.
+ */
+public class SearchPosition {
+
+    /** Square value recorded on the undo stack for a pass. */
+    public static final int PASS = -1;
+
+    // A game has at most 60 placements, and a pass can never follow a pass inside a game
+    private static final int MAX_PLIES = 128;
+
+    private long black;
+    private long white;
+    private boolean blackToMove;
+    private long hash;
+
+    private final int[] moveStack = new int[MAX_PLIES];
+    private final long[] flipStack = new long[MAX_PLIES];
+    private final long[] hashStack = new long[MAX_PLIES];
+    private int ply;
+
+    // Indices of the board patterns, kept up to date move by move once tracking is on, null while off
+    private int[] patternIndices;
+
+    public SearchPosition(long black, long white, boolean blackToMove) {
+        this.black = black;
+        this.white = white;
+        this.blackToMove = blackToMove;
+        this.hash = Zobrist.hash(black, white, blackToMove);
+    }
+
+    public SearchPosition(Bitboard position) {
+        this(position.getBlack(), position.getWhite(), position.isBlackToMove());
+    }
+
+    /**
+     * Creates a search position from a BoardSpace board.
+     * @param board the board to read
+     * @param sideToMove the color that moves next
+     * @return a new search position with an empty undo stack
+     */
+    public static SearchPosition fromBoardSpaces(BoardSpace[][] board, BoardSpace.SpaceType sideToMove) {
+        return new SearchPosition(Bitboard.fromBoardSpaces(board, sideToMove));
+    }
+
+    /**
+     * Places a disc for the side to move and hands the turn to the other side.
+     * The square must be a legal move; it is not validated here.
+     * @param square the square index (x * 8 + y) to place on
+     * @return the mask of discs that were flipped
+     */
+    public long makeMove(int square) {
+        long placed = Bitboard.bit(square);
+        long flipped;
+        if (blackToMove) {
+            flipped = Bitboard.flips(black, white, square);
+            black |= flipped | placed;
+            white &= ~flipped;
+        } else {
+            flipped = Bitboard.flips(white, black, square);
+            white |= flipped | placed;
+            black &= ~flipped;
+        }
+        moveStack[ply] = square;
+        flipStack[ply] = flipped;
+        hashStack[ply] = hash;
+        ply++;
+        hash ^= Zobrist.placeKey(blackToMove, square) ^ Zobrist.flipKey(flipped) ^ Zobrist.SIDE_KEY;
+        if (patternIndices != null) {
+            // Black places a 1 and turns 2s into 1s, white places a 2 and turns 1s into 2s
+            PatternSet.addDigits(patternIndices, placed, blackToMove ? PatternSet.BLACK_DIGIT : PatternSet.WHITE_DIGIT);
+            PatternSet.addDigits(patternIndices, flipped, blackToMove ? -1 : 1);
+        }
+        blackToMove = !blackToMove;
+        return flipped;
+    }
+
+    /**
+     * Hands the turn to the other side without placing a disc.
+     */
+    public void makePass() {
+        moveStack[ply] = PASS;
+        flipStack[ply] = 0;
+        hashStack[ply] = hash;
+        ply++;
+        hash ^= Zobrist.SIDE_KEY;
+        blackToMove = !blackToMove;
+    }
+
+    /**
+     * Reverts the most recent makeMove or makePass.
+     */
+    public void undoMove() {
+        ply--;
+        blackToMove = !blackToMove;
+        hash = hashStack[ply];
+        int square = moveStack[ply];
+        if (square == PASS) {
+            return;
+        }
+        long placed = Bitboard.bit(square);
+        long flipped = flipStack[ply];
+        if (blackToMove) {
+            black &= ~(flipped | placed);
+            white |= flipped;
+        } else {
+            white &= ~(flipped | placed);
+            black |= flipped;
+        }
+        if (patternIndices != null) {
+            PatternSet.addDigits(patternIndices, placed, blackToMove ? -PatternSet.BLACK_DIGIT : -PatternSet.WHITE_DIGIT);
+            PatternSet.addDigits(patternIndices, flipped, blackToMove ? 1 : -1);
+        }
+    }
+
+    /**
+     * Turns on pattern tracking: the indices of every PatternSet instance are computed once now and
+     * then updated by each makeMove and undoMove, instead of being recomputed at every leaf.
+     */
+    public void trackPatterns() {
+        if (patternIndices == null) {
+            patternIndices = new int[PatternSet.instances()];
+            PatternSet.computeIndices(black, white, patternIndices);
+        }
+    }
+
+    /**
+     * @return the current index of every pattern instance, or null if tracking is off; the array is
+     *         live and must not be changed by the caller
+     */
+    public int[] getPatternIndices() {
+        return patternIndices;
+    }
+
+    /**
+     * @return the number of moves and passes currently on the undo stack
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return the square of the most recent move, PASS for a pass, or PASS if nothing was played
+     */
+    public int getLastMove() {
+        return ply == 0 ? PASS : moveStack[ply - 1];
+    }
+
+    /**
+     * @return the Zobrist hash of the current discs and side to move
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public long getBlack() {
+        return black;
+    }
+
+    public long getWhite() {
+        return white;
+    }
+
+    public boolean isBlackToMove() {
+        return blackToMove;
+    }
+
+    /**
+     * @return the discs of the side to move
+     */
+    public long getPlayer() {
+        return blackToMove ? black : white;
+    }
+
+    /**
+     * @return the discs of the side that is not moving
+     */
+    public long getOpponent() {
+        return blackToMove ? white : black;
+    }
+
+    /**
+     * @return the mask of empty squares
+     */
+    public long getEmpty() {
+        return ~(black | white);
+    }
+
+    /**
+     * @return the number of empty squares
+     */
+    public int getEmptyCount() {
+        return 64 - Long.bitCount(black | white);
+    }
+
+    /**
+     * @return the legal moves of the side to move as a mask
+     */
+    public long legalMoves() {
+        return Bitboard.legalMoves(getPlayer(), getOpponent());
+    }
+
+    /**
+     * @return the legal moves the other side would have if it were to move
+     */
+    public long opponentMoves() {
+        return Bitboard.legalMoves(getOpponent(), getPlayer());
+    }
+
+    /**
+     * @return true if neither side has a legal move
+     */
+    public boolean isGameOver() {
+        return legalMoves() == 0 && opponentMoves() == 0;
+    }
+
+    /**
+     * @return the side to move's disc count minus the other side's
+     */
+    public int discDifference() {
+        return Long.bitCount(getPlayer()) - Long.bitCount(getOpponent());
+    }
+
+    /**
+     * @return an immutable snapshot of the current discs and side to move
+     */
+    public Bitboard toBitboard() {
+        return new Bitboard(black, white, blackToMove);
+    }
+}
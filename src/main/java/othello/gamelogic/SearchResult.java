@@ -0,0 +1,113 @@
+package othello.gamelogic;
+
+/**
+ * The outcome of a bitboard search: the chosen move, its score, the expected line of play
+ * and how much work it took.
+ */
+public class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final int[] principalVariation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes) {
+        this(bestMove, score, depth, nodes, bestMove == SearchPosition.PASS ? new int[0] : new int[] {bestMove});
+    }
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.principalVariation = principalVariation.clone();
+    }
+
+    /**
+     * @return the square index (x * 8 + y) of the best move, or SearchPosition.PASS if there is none
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the score of the best move from the point of view of the side to move at the root
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the depth in plies that was searched
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of positions visited during the search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * The moves both sides are expected to play from the root, starting with the best move.
+     * Passes appear as SearchPosition.PASS. The line can be shorter than the depth when it
+     * ends in a position settled by the transposition table.
+     * @return a copy of the principal variation as square indices
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * The branching factor a uniform tree of this depth would need to have this many nodes.
+     * Better move ordering prunes more and brings it down.
+     * @return the depth-th root of the node count
+     */
+    public double getEffectiveBranchingFactor() {
+        return Math.pow(nodes, 1.0 / depth);
+    }
+
+    /**
+     * @return true if the search found a move to play
+     */
+    public boolean hasMove() {
+        return bestMove != SearchPosition.PASS;
+    }
+
+    /**
+     * Looks up the best move on a BoardSpace board.
+     * @param board the board the search was started from
+     * @return the BoardSpace of the best move, or null if there is none
+     */
+    public BoardSpace toBoardSpace(BoardSpace[][] board) {
+        if (!hasMove()) {
+            return null;
+        }
+        return board[Bitboard.getX(bestMove)][Bitboard.getY(bestMove)];
+    }
+
+    @Override
+    public String toString() {
+        String move = hasMove() ? Bitboard.getX(bestMove) + " " + Bitboard.getY(bestMove) : "pass";
+        return "move " + move + " score " + score + " depth " + depth + " nodes " + nodes
+                + " pv " + formatLine(principalVariation);
+    }
+
+    /**
+     * @return the moves of a line as "x y" pairs separated by commas, with passes written as "pass"
+     */
+    public static String formatLine(int[] line) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < line.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(line[i] == SearchPosition.PASS ? "pass" : Bitboard.getX(line[i]) + " " + Bitboard.getY(line[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package othello.gamelogic;
+
+import othello.Constants;
+
+/**
+ * Evaluates a position by summing square weights over each side's discs,
+ * the same scoring as Minimax.computeWeight but read straight from the disc masks.
+ */
+public class SquareWeightEvaluator implements PositionEvaluator {
+
+    private final PhaseWeights weights;
+
+    /**
+     * Scores with Constants.BOARD_WEIGHTS for the whole game.
+     */
+    public SquareWeightEvaluator() {
+        this(PhaseWeights.single(Constants.BOARD_WEIGHTS));
+    }
+
+    /**
+     * Scores with the table of the phase the position is in, for example PhaseWeights.getDefault().
+     */
+    public SquareWeightEvaluator(PhaseWeights weights) {
+        if (weights == null) {
+            throw new IllegalArgumentException("Error: Phase weights should not be null");
+        }
+        this.weights = weights;
+    }
+
+    @Override
+    public int evaluate(SearchPosition position) {
+        return weights.score(position.getPlayer(), position.getOpponent());
+    }
+
+    public PhaseWeights getWeights() {
+        return weights;
+    }
+}
@@ -0,0 +1,86 @@
+package othello.gamelogic;
+
+/**
+ * Stable discs: discs that can never be flipped again, whatever is played.
+ * A disc is stable when, along each of its four lines (row, column and both diagonals), the line
+ * is completely filled, or the disc touches the edge, or it touches a stable disc of its own
+ * color on that line. Starting from the discs that need no neighbours, such as the corners, the
+ * stable set grows along the edges and inwards until nothing changes. The result is a lower
+ * bound: some discs that are in fact stable are not found, but every disc found is stable.
+ */
+public final class Stability {
+
+    private static final long NOT_FIRST_COLUMN = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_LAST_COLUMN = 0x7F7F7F7F7F7F7F7FL;
+    // Squares with the edge next to them on the row, on the column, and on both diagonals
+    private static final long SIDE_COLUMNS = 0x8181818181818181L;
+    private static final long SIDE_ROWS = 0xFF000000000000FFL;
+    private static final long BORDER = SIDE_COLUMNS | SIDE_ROWS;
+
+    // The squares of every row, column, diagonal and anti-diagonal
+    private static final long[] ROWS = new long[8];
+    private static final long[] COLUMNS = new long[8];
+    private static final long[] DIAGONALS = new long[15];
+    private static final long[] ANTI_DIAGONALS = new long[15];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int x = Bitboard.getX(square);
+            int y = Bitboard.getY(square);
+            ROWS[x] |= Bitboard.bit(square);
+            COLUMNS[y] |= Bitboard.bit(square);
+            DIAGONALS[x - y + 7] |= Bitboard.bit(square);
+            ANTI_DIAGONALS[x + y] |= Bitboard.bit(square);
+        }
+    }
+
+    private Stability() {}
+
+    /**
+     * @param own the discs to find the stable ones of
+     * @param opp the discs of the other side
+     * @return the discs of own that can never be flipped
+     */
+    public static long stableDiscs(long own, long opp) {
+        long occupied = own | opp;
+        // A line direction is settled where the whole line is filled or the edge is next to the disc
+        long rows = filled(ROWS, occupied) | SIDE_COLUMNS;
+        long columns = filled(COLUMNS, occupied) | SIDE_ROWS;
+        long diagonals = filled(DIAGONALS, occupied) | BORDER;
+        long antiDiagonals = filled(ANTI_DIAGONALS, occupied) | BORDER;
+
+        long stable = own & rows & columns & diagonals & antiDiagonals;
+        long previous;
+        do {
+            previous = stable;
+            long row = rows | ((stable << 1) & NOT_FIRST_COLUMN) | ((stable >>> 1) & NOT_LAST_COLUMN);
+            long column = columns | (stable << 8) | (stable >>> 8);
+            long diagonal = diagonals | ((stable << 9) & NOT_FIRST_COLUMN) | ((stable >>> 9) & NOT_LAST_COLUMN);
+            long antiDiagonal = antiDiagonals | ((stable << 7) & NOT_LAST_COLUMN) | ((stable >>> 7) & NOT_FIRST_COLUMN);
+            stable |= own & row & column & diagonal & antiDiagonal;
+        } while (stable != previous);
+        return stable;
+    }
+
+    /**
+     * The best final disc difference the side to move can still reach: every stable disc of the
+     * opponent stays the opponent's to the end.
+     * @param player the discs of the side to move
+     * @param opponent the discs of the other side
+     * @return an upper bound on the final disc difference of the side to move
+     */
+    public static int upperBound(long player, long opponent) {
+        return 64 - 2 * Long.bitCount(stableDiscs(opponent, player));
+    }
+
+    // The squares of the lines that have no empty square left
+    private static long filled(long[] lines, long occupied) {
+        long full = 0;
+        for (long line : lines) {
+            if ((occupied & line) == line) {
+                full |= line;
+            }
+        }
+        return full;
+    }
+}
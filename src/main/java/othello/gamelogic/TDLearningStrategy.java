@@ -1,9 +1,5 @@
 package othello.gamelogic;
 
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.List;
-
 import org.deeplearning4j.nn.conf.ConvolutionMode;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -123,28 +119,32 @@ public class TDLearningStrategy implements AIStrategy {
      */
     @Override
     public BoardSpace computerMove(BoardSpace[][] board, Player actingPlayer) {
-        // Obtain all available moves
-        Map<BoardSpace, List<BoardSpace>> availableMoves = actingPlayer.getAvailableMoves(board);
-        if (availableMoves == null || availableMoves.isEmpty()) {
+        // Obtain all available moves as a mask
+        long availableMoves = actingPlayer.getAvailableMoveMask(board);
+        if (availableMoves == 0) {
             return null;
         }
 
         // Set the exploration threshold
         double epsilon = 0.05;
         if (Math.random() < epsilon) {
-            int chosenIndex = (int) (Math.random() * availableMoves.size());
-            return new ArrayList<>(availableMoves.keySet()).get(chosenIndex);
+            int chosenIndex = (int) (Math.random() * Long.bitCount(availableMoves));
+            int chosenSquare = Bitboard.nthSquare(availableMoves, chosenIndex);
+            return board[Bitboard.getX(chosenSquare)][Bitboard.getY(chosenSquare)];
         }
 
         BoardSpace optimalPosition = null;
         double optimalValue = Double.NEGATIVE_INFINITY;
-
-        for (BoardSpace moveChoice : availableMoves.keySet()) {
-            // Make a copy of the original board and then call move
-            BoardSpace[][] boardCopy = makeBoardCopy(board);
-            move(boardCopy, actingPlayer, moveChoice, availableMoves.get(moveChoice));
-
-            double predictedOutput = predictBoard(boardCopy, actingPlayer);
+        // One position is shared by every candidate, each move is undone after it is evaluated
+        SearchPosition position = SearchPosition.fromBoardSpaces(board, actingPlayer.getColor());
+
+        for (long rest = availableMoves; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            BoardSpace moveChoice = board[Bitboard.getX(square)][Bitboard.getY(square)];
+            position.makeMove(square);
+            // After the move the opponent is to move, so the acting player owns getOpponent()
+            double predictedOutput = predictPosition(position.getOpponent(), position.getPlayer());
+            position.undoMove();
             // The condition for updating optimal position and value
             if (predictedOutput > optimalValue) {
                 optimalValue = predictedOutput;
@@ -155,55 +155,6 @@ public class TDLearningStrategy implements AIStrategy {
         return optimalPosition;
     }
 
-    /**
-     * Make a copy of the board passed into the method
-     * @param originalBoard the board that will be copied
-     * @return the copied board
-     */
-    private BoardSpace[][] makeBoardCopy(BoardSpace[][] originalBoard) {
-        int rows = originalBoard.length;
-        int columns = originalBoard[0].length;
-        BoardSpace[][] boardCopy = new BoardSpace[rows][columns];
-
-        // Loop over the board
-        for (int row = 0; row < rows; row++) {
-            for (int column = 0; column < columns; column++) {
-                BoardSpace.SpaceType eachCopy = originalBoard[row][column].getType();
-                boardCopy[row][column] = new BoardSpace(row, column, eachCopy);
-            }
-        }
-
-        return boardCopy;
-    }
-
-    /**
-     * Placing and flipping on a copy board
-     * @param boardCopy the copy board
-     * @param actingPlayer the specific player moving
-     * @param potentials the determined location to place
-     * @param startingPoints the origin locations
-     */
-    private void move(BoardSpace[][] boardCopy, Player actingPlayer, BoardSpace potentials,
-                      List<BoardSpace> startingPoints) {
-        boardCopy[potentials.getX()][potentials.getY()].setType(actingPlayer.getColor());
-        for (BoardSpace startingPoint : startingPoints) {
-            int rowChange = Integer.compare(potentials.getX(), startingPoint.getX());
-            int columnChange = Integer.compare(potentials.getY(), startingPoint.getY());
-            int thisRow = startingPoint.getX();
-            int thisColumn = startingPoint.getY();
-
-            while (true) {
-                boardCopy[thisRow][thisColumn].setType(actingPlayer.getColor());
-                if (thisRow == potentials.getX() && thisColumn == potentials.getY()) {
-                    break;
-                }
-
-                thisRow += rowChange;
-                thisColumn += columnChange;
-            }
-        }
-    }
-
     /**
      * Run forward CNN and obtain predicted value for board state
      * @param board the standard game board
@@ -211,33 +162,27 @@ public class TDLearningStrategy implements AIStrategy {
      * @return a single value that shows the player how valuable the board space is
      */
     private double predictBoard(BoardSpace[][] board, Player actingPlayer) {
-        double[][] boardInputs = new double[board.length][board[0].length];
-        // Obtain the opponent player's color
-        BoardSpace.SpaceType opponent = (actingPlayer.getColor() == BoardSpace.SpaceType.BLACK)
-                ? BoardSpace.SpaceType.WHITE : BoardSpace.SpaceType.BLACK;
-        // Loop over the board
-        for (int r = 0; r < board.length; r++) {
-            for (int c = 0; c < board[r].length; c++) {
-                BoardSpace.SpaceType thisType = board[r][c].getType();
-                if (thisType == actingPlayer.getColor()) {
-                    // If location is this player then assign 1
-                    boardInputs[r][c] = 1.0;
-                } else if (thisType == opponent) {
-                    // If location is opponent then assign -1
-                    boardInputs[r][c] = -1.0;
-                } else {
-                    // Empty location is 0
-                    boardInputs[r][c] = 0.0;
-                }
-            }
-        }
+        return predictPosition(Bitboard.maskOf(board, actingPlayer.getColor()),
+                Bitboard.maskOf(board, actingPlayer.getOpponentColor()));
+    }
 
-        // Build a four-dimensional IND array and use the assigned values on the array
-        INDArray inputs = Nd4j.create(1, 1, board.length, board[0].length);
-        for (int r = 0; r < board.length; r++) {
-            for (int c = 0; c < board[r].length; c++) {
-                inputs.putScalar(new int[]{0, 0, r, c}, boardInputs[r][c]);
-            }
+    /**
+     * Run forward CNN on a position given as disc masks
+     * @param own the discs of the player that is being evaluated
+     * @param opponent the discs of the other player
+     * @return a single value that shows the player how valuable the position is
+     */
+    private double predictPosition(long own, long opponent) {
+        int size = OthelloGame.GAME_BOARD_SIZE;
+        // Build a four-dimensional IND array, 1 for this player, -1 for the opponent and 0 for empty
+        INDArray inputs = Nd4j.create(1, 1, size, size);
+        for (long rest = own; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            inputs.putScalar(new int[]{0, 0, Bitboard.getX(square), Bitboard.getY(square)}, 1.0);
+        }
+        for (long rest = opponent; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            inputs.putScalar(new int[]{0, 0, Bitboard.getX(square), Bitboard.getY(square)}, -1.0);
         }
 
         INDArray output = CNN.output(inputs);
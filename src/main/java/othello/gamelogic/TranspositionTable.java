@@ -0,0 +1,234 @@
+package othello.gamelogic;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results keyed by Zobrist hash.
+ * The table is a power-of-two number of buckets with two slots each: the first slot keeps the
+ * deepest result seen for the current search, the second slot is always overwritten.
+ * Each slot is two longs, the packed data and the key XOR-ed with that data, so a slot torn by
+ * a concurrent writer fails the key check instead of returning wrong data.
+ */
+public class TranspositionTable {
+
+    /** The stored score is the exact value of the position. */
+    public static final int EXACT = 0;
+    /** The stored score is a lower bound (the search failed high). */
+    public static final int LOWER = 1;
+    /** The stored score is an upper bound (the search failed low). */
+    public static final int UPPER = 2;
+
+    /** Returned by probe when the position is not in the table. */
+    public static final long MISS = 0;
+
+    /** Move value used when an entry has no best move. */
+    public static final int NO_MOVE = -1;
+
+    private static final int SLOTS_PER_BUCKET = 2;
+    private static final int BYTES_PER_SLOT = 16;
+
+    // Layout of the packed data word
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int AGE_SHIFT = 49;
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int age;
+
+    private long probes;
+    private long hits;
+    private long stores;
+    private long replacements;
+
+    /**
+     * @param sizeMb the memory to use in megabytes, rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int sizeMb) {
+        if (sizeMb < 1) {
+            throw new IllegalArgumentException("Error: Table size should be at least 1 MB");
+        }
+        long buckets = ((long) sizeMb << 20) / (SLOTS_PER_BUCKET * BYTES_PER_SLOT);
+        int bucketCount = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+        this.keys = new long[bucketCount * SLOTS_PER_BUCKET];
+        this.data = new long[bucketCount * SLOTS_PER_BUCKET];
+        this.bucketMask = bucketCount - 1;
+    }
+
+    /**
+     * Looks a position up.
+     * @param key the Zobrist hash of the position
+     * @return the packed entry, or MISS if the position is not stored
+     */
+    public long probe(long key) {
+        probes++;
+        int slot = (int) (key & bucketMask) * SLOTS_PER_BUCKET;
+        for (int i = slot; i < slot + SLOTS_PER_BUCKET; i++) {
+            long entry = data[i];
+            if (entry != MISS && (keys[i] ^ entry) == key) {
+                hits++;
+                return entry;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores a search result.
+     * The depth-preferred slot is replaced by deeper results, by results for the same position
+     * and by anything once its entry is from an older search; otherwise the result goes into
+     * the always-replace slot.
+     * @param key the Zobrist hash of the position
+     * @param depth the remaining depth the score was searched to
+     * @param bound EXACT, LOWER or UPPER
+     * @param score the score from the point of view of the side to move
+     * @param move the best move found, or NO_MOVE
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        stores++;
+        long entry = pack(depth, bound, score, move);
+        int slot = (int) (key & bucketMask) * SLOTS_PER_BUCKET;
+        long preferred = data[slot];
+        boolean sameKey = preferred != MISS && (keys[slot] ^ preferred) == key;
+        if (preferred == MISS || sameKey || age(preferred) != age || depth(preferred) <= depth) {
+            if (preferred != MISS && !sameKey) {
+                replacements++;
+            }
+            data[slot] = entry;
+            keys[slot] = key ^ entry;
+        } else {
+            data[slot + 1] = entry;
+            keys[slot + 1] = key ^ entry;
+        }
+    }
+
+    private long pack(int depth, int bound, int score, int move) {
+        return VALID
+                | ((long) (age & 0x3F) << AGE_SHIFT)
+                | ((long) (move + 1) << MOVE_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) Math.min(depth, 0xFF) << DEPTH_SHIFT)
+                | (score & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the score stored in a packed entry
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @return the depth stored in a packed entry
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @return the bound type (EXACT, LOWER or UPPER) stored in a packed entry
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * @return the best move stored in a packed entry, or NO_MOVE
+     */
+    public static int move(long entry) {
+        return ((int) (entry >>> MOVE_SHIFT) & 0x7F) - 1;
+    }
+
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & 0x3F;
+    }
+
+    /**
+     * Marks the start of a new search so entries from earlier searches become replaceable.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    /**
+     * Removes every entry and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        resetStats();
+    }
+
+    /**
+     * Resets the probe, hit, store and replacement counters.
+     */
+    public void resetStats() {
+        probes = 0;
+        hits = 0;
+        stores = 0;
+        replacements = 0;
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * @return the memory used by the table in bytes
+     */
+    public long sizeInBytes() {
+        return (long) data.length * BYTES_PER_SLOT;
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * @return how often the depth-preferred slot evicted a different position
+     */
+    public long getReplacements() {
+        return replacements;
+    }
+
+    /**
+     * @return the fraction of probes that found their position, 0 if there were no probes
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0.0 : (double) hits / probes;
+    }
+
+    /**
+     * @return the fraction of a sample of slots that hold an entry from the current search
+     */
+    public double getFillRate() {
+        int sample = Math.min(data.length, 1 << 12);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != MISS && age(data[i]) == age) {
+                used++;
+            }
+        }
+        return (double) used / sample;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TT %d MB probes %d hits %d (%.1f%%) stores %d replacements %d",
+                sizeInBytes() >> 20, probes, hits, getHitRate() * 100, stores, replacements);
+    }
+}
@@ -0,0 +1,282 @@
+package othello.gamelogic;
+
+import othello.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tree-parallel Monte Carlo tree search: all worker threads descend one shared tree at the same
+ * time, so the playouts of every thread deepen the same lines instead of several shallow trees.
+ * It suits long analysis searches, where one deep tree is worth more than the root-parallel
+ * search's independent trees.
+ * <p>
+ * Nothing is locked. The counters of a node are updated atomically, and a node is expanded by the
+ * one thread that claims it with a compare-and-set; the others keep playing out from it until its
+ * children are published. While a simulation runs, every node on its path carries a virtual loss,
+ * extra visits without a win, so the other threads are steered towards different paths instead of
+ * all piling onto the current best one.
+ * <p>
+ * Unlike MCTS, selection scores each child from the point of view of the side that moves into it,
+ * so the opponent's replies are the ones that are best for the opponent. The subtree of the move
+ * that is played is kept, and the next search continues from the opponent's reply.
+ */
+public class TreeParallelMCTS {
+
+    /** Default number of virtual losses a simulation adds to each node on its path. */
+    public static final int DEFAULT_VIRTUAL_LOSS = 3;
+
+    private final Player self;
+    private final Player op;
+    // One MCTS per worker for its playouts and board copies, each with its own random source
+    private final MCTS[] workers;
+    private final Random[] randoms;
+    private final ExecutorService pool;
+    private int virtualLoss = DEFAULT_VIRTUAL_LOSS;
+    private MCTSNode root;
+    // The subtree of the move played last, where the next search looks for the opponent's reply
+    private MCTSNode kept;
+    private int reusedSimulations;
+
+    /**
+     * @param threads the number of worker threads sharing the tree
+     * @param self the player the move is chosen for
+     * @param op the other player
+     * @param seed the seed the worker random sources are drawn from
+     */
+    public TreeParallelMCTS(int threads, Player self, Player op, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Error: Thread count should be at least 1");
+        }
+        this.self = self;
+        this.op = op;
+        this.workers = new MCTS[threads];
+        this.randoms = new Random[threads];
+        Random seeds = new Random(seed);
+        for (int i = 0; i < threads; i++) {
+            randoms[i] = new Random(seeds.nextLong());
+            workers[i] = new MCTS(0, self, op, null);
+            workers[i].setRandom(randoms[i]);
+        }
+        // Daemon threads so an idle pool never keeps the program from exiting
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tree-parallel-mcts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a number of simulations on the shared tree and picks the most visited move.
+     * @param board the current board, self is to move
+     * @param simulations the number of simulations shared among the threads
+     * @return the chosen space of the board, or null if self has no move
+     */
+    public BoardSpace search(BoardSpace[][] board, int simulations) {
+        return run(board, simulations, Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs simulations on the shared tree until the time is up and picks the most visited move.
+     * @param board the current board, self is to move
+     * @param millis the wall-clock budget in milliseconds
+     * @return the chosen space of the board, or null if self has no move
+     */
+    public BoardSpace searchTimed(BoardSpace[][] board, long millis) {
+        return run(board, Integer.MAX_VALUE, System.nanoTime() + millis * 1_000_000L);
+    }
+
+    private BoardSpace run(BoardSpace[][] board, int simulations, long deadline) {
+        root = reuseRoot(board);
+        AtomicInteger remaining = new AtomicInteger(simulations);
+        List<Future<?>> running = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            MCTS worker = workers[i];
+            Random random = randoms[i];
+            running.add(pool.submit(() -> {
+                while (remaining.getAndDecrement() > 0 && System.nanoTime() < deadline) {
+                    simulate(worker, random);
+                }
+            }));
+        }
+        for (Future<?> task : running) {
+            waitFor(task);
+        }
+        MCTSNode best = null;
+        for (MCTSNode child : root.getMctsChildren()) {
+            if (best == null || child.getTotalSimulations() > best.getTotalSimulations()) {
+                best = child;
+            }
+        }
+        if (best == null) {
+            kept = null;
+            return null;
+        }
+        // The rest of the tree goes once the next search has found the opponent's reply below this move
+        kept = best;
+        return board[best.getSpace().getX()][best.getSpace().getY()];
+    }
+
+    // Selection, expansion, one playout and backpropagation, with virtual loss along the path
+    private void simulate(MCTS worker, Random random) {
+        MCTSNode node = root;
+        while (node.isExpanded() && !node.getMctsChildren().isEmpty()) {
+            node = select(node);
+            node.addVirtualLoss(virtualLoss);
+        }
+        // Only one thread expands a node, the others play out from the node itself meanwhile
+        if (!node.isExpanded() && node.tryStartExpansion()) {
+            ArrayList<MCTSNode> children = expand(node, worker);
+            node.finishExpansion(children);
+            if (!children.isEmpty()) {
+                node = children.get(random.nextInt(children.size()));
+                node.addVirtualLoss(virtualLoss);
+            }
+        }
+        boolean win = worker.simulation(node);
+        for (MCTSNode step = node; step != null; step = step.getParent()) {
+            step.addSimulation(win);
+            if (step != root) {
+                step.addVirtualLoss(-virtualLoss);
+            }
+        }
+    }
+
+    // The child with the best UCT value for the side that moves into it, in-flight visits count as losses
+    private MCTSNode select(MCTSNode node) {
+        boolean selfMoves = node.getDepth() % 2 == 0;
+        int parentVisits = Math.max(1, node.getTotalSimulations() + node.getVirtualLoss());
+        double logParent = Math.log(parentVisits);
+        MCTSNode best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (MCTSNode child : node.getMctsChildren()) {
+            int simulations = child.getTotalSimulations();
+            int visits = simulations + child.getVirtualLoss();
+            if (visits == 0) {
+                return child;
+            }
+            int wins = selfMoves ? child.getNumberOfWin() : simulations - child.getNumberOfWin();
+            double value = (double) wins / visits + Constants.EXPLORATION_PARAM * Math.sqrt(logParent / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // The children of every move of the side to move, built privately before they are published
+    private ArrayList<MCTSNode> expand(MCTSNode node, MCTS worker) {
+        Player mover = (node.getDepth() % 2 == 0) ? self : op;
+        BoardSpace[][] board = node.getBoard();
+        long moves = mover.getAvailableMoveMask(board);
+        ArrayList<MCTSNode> children = new ArrayList<>(Long.bitCount(moves));
+        for (long rest = moves; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            MCTSNode child = new MCTSNode();
+            child.setParent(node);
+            child.setBoard(worker.futureBoard(board, square, mover));
+            child.setDepth(node.getDepth() + 1);
+            child.setSpace(board[Bitboard.getX(square)][Bitboard.getY(square)]);
+            children.add(child);
+        }
+        return children;
+    }
+
+    // The opponent's reply below the move played last becomes the root, otherwise a fresh root is made
+    private MCTSNode reuseRoot(BoardSpace[][] board) {
+        reusedSimulations = 0;
+        if (kept != null) {
+            long black = Bitboard.maskOf(board, BoardSpace.SpaceType.BLACK);
+            long white = Bitboard.maskOf(board, BoardSpace.SpaceType.WHITE);
+            for (MCTSNode reply : kept.getMctsChildren()) {
+                if (reply.getDepth() % 2 == 0
+                        && Bitboard.maskOf(reply.getBoard(), BoardSpace.SpaceType.BLACK) == black
+                        && Bitboard.maskOf(reply.getBoard(), BoardSpace.SpaceType.WHITE) == white) {
+                    reply.setParent(null);
+                    reusedSimulations = reply.getTotalSimulations();
+                    return reply;
+                }
+            }
+        }
+        MCTSNode fresh = new MCTSNode();
+        fresh.setBoard(board);
+        return fresh;
+    }
+
+    private static void waitFor(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Error: Interrupted while searching", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error: A search thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Sets the virtual loss a simulation adds to each node on its path while it runs.
+     * @param virtualLoss the number of lost visits, 0 to turn virtual loss off
+     */
+    public void setVirtualLoss(int virtualLoss) {
+        if (virtualLoss < 0) {
+            throw new IllegalArgumentException("Error: Virtual loss should not be negative");
+        }
+        this.virtualLoss = virtualLoss;
+    }
+
+    public int getVirtualLoss() {
+        return virtualLoss;
+    }
+
+    /**
+     * Gives every worker its own proof-number search oracle, or takes them away.
+     * @param enabled true to prove positions near the end instead of playing them out
+     */
+    public void setProofOracle(boolean enabled) {
+        for (MCTS worker : workers) {
+            // The oracle's table is not shared, so each worker gets a small one of its own
+            worker.setProver(enabled ? new ProofNumberSearch(1, new TranspositionTable(1)) : null);
+        }
+    }
+
+    /**
+     * @return the root of the last search, its children hold the statistics of every move
+     */
+    public MCTSNode getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the simulations the last search inherited from the previous move
+     */
+    public int getReusedSimulations() {
+        return reusedSimulations;
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    public Player getSelf() {
+        return self;
+    }
+
+    public Player getOp() {
+        return op;
+    }
+
+    /**
+     * Stops the worker threads. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
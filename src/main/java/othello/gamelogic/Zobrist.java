@@ -0,0 +1,98 @@
+package othello.gamelogic;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing for Othello positions.
+ * Every (color, square) pair has a fixed random 64-bit key and a position's hash is the XOR of
+ * the keys of its discs, plus SIDE_KEY when white is to move. Placing or flipping a disc
+ * changes the hash by XOR-ing a few keys, so it can be kept up to date move by move.
+ */
+public final class Zobrist {
+
+    /** XOR-ed into the hash when white is the side to move. */
+    public static final long SIDE_KEY;
+
+    private static final long[] BLACK_KEYS = new long[64];
+    private static final long[] WHITE_KEYS = new long[64];
+    // BLACK_KEYS[s] ^ WHITE_KEYS[s], the change caused by flipping the disc on s
+    private static final long[] FLIP_KEYS = new long[64];
+
+    static {
+        // A fixed seed keeps hashes identical between runs, so stored tables and books stay valid
+        SplittableRandom random = new SplittableRandom(0x0E7E110L);
+        for (int square = 0; square < 64; square++) {
+            BLACK_KEYS[square] = random.nextLong();
+            WHITE_KEYS[square] = random.nextLong();
+            FLIP_KEYS[square] = BLACK_KEYS[square] ^ WHITE_KEYS[square];
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    /**
+     * @return the key of a disc of the given type on a square, 0 for EMPTY
+     */
+    public static long key(BoardSpace.SpaceType type, int square) {
+        if (type == BoardSpace.SpaceType.BLACK) {
+            return BLACK_KEYS[square];
+        } else if (type == BoardSpace.SpaceType.WHITE) {
+            return WHITE_KEYS[square];
+        }
+        return 0;
+    }
+
+    /**
+     * @return the key of a disc placed on a square by black or by white
+     */
+    public static long placeKey(boolean black, int square) {
+        return black ? BLACK_KEYS[square] : WHITE_KEYS[square];
+    }
+
+    /**
+     * @param flips the mask of discs that change color
+     * @return the value to XOR into a hash to flip all of those discs
+     */
+    public static long flipKey(long flips) {
+        long key = 0;
+        for (long rest = flips; rest != 0; rest &= rest - 1) {
+            key ^= FLIP_KEYS[Long.numberOfTrailingZeros(rest)];
+        }
+        return key;
+    }
+
+    /**
+     * Computes a hash from scratch.
+     * @param black the mask of black discs
+     * @param white the mask of white discs
+     * @param blackToMove true if black is the side to move
+     * @return the Zobrist hash of the position
+     */
+    public static long hash(long black, long white, boolean blackToMove) {
+        long key = blackToMove ? 0 : SIDE_KEY;
+        for (long rest = black; rest != 0; rest &= rest - 1) {
+            key ^= BLACK_KEYS[Long.numberOfTrailingZeros(rest)];
+        }
+        for (long rest = white; rest != 0; rest &= rest - 1) {
+            key ^= WHITE_KEYS[Long.numberOfTrailingZeros(rest)];
+        }
+        return key;
+    }
+
+    /**
+     * Computes a hash from scratch for a BoardSpace board.
+     * @param board the board to hash
+     * @param sideToMove the color that moves next
+     * @return the Zobrist hash of the position
+     */
+    public static long hash(BoardSpace[][] board, BoardSpace.SpaceType sideToMove) {
+        long key = (sideToMove == BoardSpace.SpaceType.WHITE) ? SIDE_KEY : 0;
+        for (int x = 0; x < board.length; x++) {
+            for (int y = 0; y < board[x].length; y++) {
+                key ^= key(board[x][y].getType(), Bitboard.square(x, y));
+            }
+        }
+        return key;
+    }
+}
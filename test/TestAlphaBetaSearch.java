@@ -0,0 +1,200 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AlphaBetaSearch
+ * JUnit 4.13.2
+ */
+public class TestAlphaBetaSearch {
+
+    private final PositionEvaluator evaluator = new SquareWeightEvaluator();
+
+    // plain negamax without pruning, used as the reference score
+    private int reference(SearchPosition position, int depth) {
+        if (depth == 0) {
+            return evaluator.evaluate(position);
+        }
+        long moves = position.legalMoves();
+        if (moves == 0) {
+            if (position.opponentMoves() == 0) {
+                return AlphaBetaSearch.finalScore(position);
+            }
+            position.makePass();
+            int score = -reference(position, depth);
+            position.undoMove();
+            return score;
+        }
+        int best = -AlphaBetaSearch.INFINITY;
+        for (long rest = moves; rest != 0; rest &= rest - 1) {
+            position.makeMove(Long.numberOfTrailingZeros(rest));
+            best = Math.max(best, -reference(position, depth - 1));
+            position.undoMove();
+        }
+        return best;
+    }
+
+    static SearchPosition randomPosition(Random random, int plies) {
+        SearchPosition position = new SearchPosition(Bitboard.initial());
+        for (int i = 0; i < plies && !position.isGameOver(); i++) {
+            long moves = position.legalMoves();
+            if (moves == 0) {
+                position.makePass();
+            } else {
+                position.makeMove(Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))));
+            }
+        }
+        return new SearchPosition(position.toBitboard());
+    }
+
+    // alpha-beta returns the same score as full minimax on random midgame positions
+    @Test
+    public void matchesMinimaxTest() {
+        Random random = new Random(1);
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        for (int i = 0; i < 20; i++) {
+            SearchPosition position = randomPosition(random, 10 + random.nextInt(30));
+            Bitboard before = position.toBitboard();
+            SearchResult result = search.search(position, 4);
+            assertEquals(reference(position, 4), result.getScore());
+            assertEquals(before, position.toBitboard());
+            assertTrue(result.getNodes() > 0);
+        }
+    }
+
+    // the chosen move is legal and maps back onto the BoardSpace board
+    @Test
+    public void bestMoveTest() {
+        Player black = new HumanPlayer();
+        black.setColor(BoardSpace.SpaceType.BLACK);
+        BoardSpace[][] board = Bitboard.initial().toBoardSpaces();
+        SearchResult result = new Minimax().alphaBeta(board, black, 5);
+        assertTrue(black.getAvailableMoves(board).containsKey(result.toBoardSpace(board)));
+    }
+
+    // no legal move for anyone: the result is a pass scored as a finished game
+    @Test
+    public void gameOverTest() {
+        SearchPosition position = new SearchPosition(Bitboard.bit(0), 0, true);
+        SearchResult result = new AlphaBetaSearch().search(position, 3);
+        assertFalse(result.hasMove());
+        assertEquals(AlphaBetaSearch.WIN_SCORE + 1, result.getScore());
+    }
+
+    // a timed search respects its budget and returns a completed depth with a legal move
+    @Test
+    public void timedSearchTest() {
+        SearchPosition position = new SearchPosition(Bitboard.initial());
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        search.setTranspositionTable(new TranspositionTable(4));
+        long start = System.currentTimeMillis();
+        SearchResult result = search.searchTimed(position, 200, AlphaBetaSearch.MAX_DEPTH);
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed < 1000);
+        assertTrue(result.getDepth() >= 2);
+        assertTrue((position.legalMoves() & Bitboard.bit(result.getBestMove())) != 0);
+        assertEquals(Bitboard.initial(), position.toBitboard());
+    }
+
+    // near the end of the game the driver stops once the search reaches the last move
+    @Test
+    public void timedSearchStopsAtGameEndTest() {
+        SearchPosition position = randomPosition(new Random(3), 54);
+        SearchResult result = new AlphaBetaSearch().searchTimed(position, 10_000, AlphaBetaSearch.MAX_DEPTH);
+        assertTrue(result.getDepth() <= position.getEmptyCount() + 1);
+    }
+
+    // move ordering changes the node count but never the score, and searches fewer nodes than square order
+    @Test
+    public void moveOrderingTest() {
+        Random random = new Random(11);
+        long naturalNodes = 0;
+        long heuristicNodes = 0;
+        for (int i = 0; i < 10; i++) {
+            SearchPosition position = randomPosition(random, 20 + random.nextInt(10));
+            AlphaBetaSearch natural = new AlphaBetaSearch();
+            natural.setMoveOrdering(new NaturalMoveOrdering());
+            AlphaBetaSearch heuristic = new AlphaBetaSearch();
+            SearchResult expected = natural.search(position, 5);
+            SearchResult actual = heuristic.search(position, 5);
+            assertEquals(expected.getScore(), actual.getScore());
+            naturalNodes += expected.getNodes();
+            heuristicNodes += actual.getNodes();
+        }
+        assertTrue(heuristicNodes < naturalNodes);
+    }
+
+    // PVS and aspiration windows return the same score as plain alpha-beta
+    @Test
+    public void principalVariationSearchTest() {
+        Random random = new Random(17);
+        for (int i = 0; i < 10; i++) {
+            SearchPosition position = randomPosition(random, 15 + random.nextInt(25));
+            AlphaBetaSearch plain = new AlphaBetaSearch();
+            plain.setPrincipalVariationSearch(false);
+            plain.setAspirationWindow(0);
+            AlphaBetaSearch pvs = new AlphaBetaSearch();
+            pvs.setTranspositionTable(new TranspositionTable(1));
+            assertEquals(plain.search(position, 4).getScore(), pvs.search(position, 4).getScore());
+            assertEquals(plain.searchTimed(position, 10_000, 5).getScore(), pvs.searchTimed(position, 10_000, 5).getScore());
+        }
+    }
+
+    // the principal variation starts with the best move, can be played out, and ends in the returned score
+    @Test
+    public void principalVariationTest() {
+        Random random = new Random(23);
+        for (int i = 0; i < 10; i++) {
+            SearchPosition position = randomPosition(random, 15 + random.nextInt(40));
+            SearchResult result = new AlphaBetaSearch().search(position, 4);
+            int[] line = result.getPrincipalVariation();
+            if (!result.hasMove()) {
+                continue;
+            }
+            assertEquals(result.getBestMove(), line[0]);
+            for (int square : line) {
+                if (square == SearchPosition.PASS) {
+                    assertEquals(0, position.legalMoves());
+                    position.makePass();
+                } else {
+                    assertTrue((position.legalMoves() & Bitboard.bit(square)) != 0);
+                    position.makeMove(square);
+                }
+            }
+            // Without a table the line reaches the leaf the score came from
+            int sign = (line.length % 2 == 0) ? 1 : -1;
+            if (!position.isGameOver()) {
+                assertEquals(result.getScore(), sign * new SquareWeightEvaluator().evaluate(position));
+            }
+            for (int j = 0; j < line.length; j++) {
+                position.undoMove();
+            }
+        }
+    }
+
+    // Lazy SMP with several threads completes the requested depth with a legal move and restores the position
+    @Test
+    public void lazySmpTest() {
+        SearchPosition position = randomPosition(new Random(29), 20);
+        Bitboard before = position.toBitboard();
+        LazySmpSearch search = new LazySmpSearch(4, new TranspositionTable(4));
+        try {
+            SearchResult result = search.searchTimed(position, 10_000, 6);
+            assertEquals(6, result.getDepth());
+            assertTrue((position.legalMoves() & Bitboard.bit(result.getBestMove())) != 0);
+            assertEquals(before, position.toBitboard());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    // Lazy SMP needs at least one thread and a table to share
+    @Test(expected = IllegalArgumentException.class)
+    public void lazySmpNeedsTableTest() {
+        new LazySmpSearch(2, null);
+    }
+}
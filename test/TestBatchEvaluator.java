@@ -0,0 +1,78 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for BatchEvaluator
+ * JUnit 4.13.2
+ */
+public class TestBatchEvaluator {
+
+    private static final int COUNT = 200;
+
+    private final long[] own = new long[COUNT];
+    private final long[] opp = new long[COUNT];
+
+    // fills the arrays with positions from random games of every length
+    private void randomPositions(long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < COUNT; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 1 + random.nextInt(58));
+            own[i] = position.getPlayer();
+            opp[i] = position.getOpponent();
+        }
+    }
+
+    // batch scores match what minimax computes for each board
+    @Test
+    public void scoresTest() {
+        randomPositions(20);
+        BatchEvaluator batch = new BatchEvaluator();
+        Minimax minimax = new Minimax();
+        Player player = new HumanPlayer();
+        player.setColor(BoardSpace.SpaceType.BLACK);
+        int[] scores = new int[COUNT];
+        batch.scores(own, opp, COUNT, scores);
+        for (int i = 0; i < COUNT; i++) {
+            BoardSpace[][] board = new Bitboard(own[i], opp[i], true).toBoardSpaces();
+            assertEquals(minimax.computeWeight(board, player), scores[i]);
+        }
+    }
+
+    // mobility is the difference of the legal move counts and is added with its weight
+    @Test
+    public void mobilityTest() {
+        randomPositions(22);
+        BatchEvaluator batch = new BatchEvaluator();
+        int[] mobilities = new int[COUNT];
+        int[] scores = new int[COUNT];
+        BatchEvaluator.mobilities(own, opp, COUNT, mobilities);
+        batch.evaluate(own, opp, COUNT, 15, scores);
+        for (int i = 0; i < COUNT; i++) {
+            int expected = Long.bitCount(Bitboard.legalMoves(own[i], opp[i]))
+                    - Long.bitCount(Bitboard.legalMoves(opp[i], own[i]));
+            assertEquals(expected, mobilities[i]);
+            assertEquals(batch.getWeights().score(own[i], opp[i]) + 15 * expected, scores[i]);
+        }
+    }
+
+    // only the first count entries are written
+    @Test
+    public void partialBatchTest() {
+        randomPositions(23);
+        int[] scores = new int[COUNT];
+        scores[10] = 12345;
+        new BatchEvaluator().scores(own, opp, 10, scores);
+        assertEquals(12345, scores[10]);
+    }
+
+    // a count larger than the arrays is rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void badCountTest() {
+        new BatchEvaluator().scores(own, opp, COUNT + 1, new int[COUNT + 1]);
+    }
+}
@@ -0,0 +1,122 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Bitboard
+ * JUnit 4.13.2
+ */
+public class TestBitboard {
+
+    private static BoardSpace[][] emptyBoard() {
+        BoardSpace[][] board = new BoardSpace[8][8];
+        for (int x = 0; x < 8; x++)
+            for (int y = 0; y < 8; y++)
+                board[x][y] = new BoardSpace(x, y, BoardSpace.SpaceType.EMPTY);
+        return board;
+    }
+
+    private static long mapToMask(Map<BoardSpace, List<BoardSpace>> moves) {
+        long mask = 0;
+        for (BoardSpace space : moves.keySet()) {
+            mask |= Bitboard.bit(Bitboard.square(space.getX(), space.getY()));
+        }
+        return mask;
+    }
+
+    // initial position: black has the four standard opening moves
+    @Test
+    public void initialMovesTest() {
+        Bitboard start = Bitboard.initial();
+        long expected = Bitboard.bit(Bitboard.square(2, 3)) | Bitboard.bit(Bitboard.square(3, 2))
+                | Bitboard.bit(Bitboard.square(4, 5)) | Bitboard.bit(Bitboard.square(5, 4));
+        assertEquals(expected, start.legalMoves());
+    }
+
+    // conversion to BoardSpace[][] and back keeps every disc
+    @Test
+    public void roundTripTest() {
+        Bitboard start = Bitboard.initial().play(Bitboard.square(2, 3));
+        BoardSpace[][] board = start.toBoardSpaces();
+        assertSame(BoardSpace.SpaceType.BLACK, board[3][3].getType());
+        assertEquals(start, Bitboard.fromBoardSpaces(board, BoardSpace.SpaceType.WHITE));
+    }
+
+    // a disc on the last column must not wrap around to the next row
+    @Test
+    public void noWrapTest() {
+        BoardSpace[][] board = emptyBoard();
+        board[2][7].setType(BoardSpace.SpaceType.BLACK);
+        board[3][0].setType(BoardSpace.SpaceType.WHITE);
+        Bitboard position = Bitboard.fromBoardSpaces(board, BoardSpace.SpaceType.BLACK);
+        assertEquals(0, position.legalMoves());
+        assertEquals(0, Bitboard.flips(position.getPlayer(), position.getOpponent(), Bitboard.square(3, 1)));
+    }
+
+    // random games: moves and flips agree with Player.getAvailableMoves and OthelloGame.takeSpaces
+    @Test
+    public void matchesBoardSpaceLogicTest() {
+        Random random = new Random(5940);
+        for (int game = 0; game < 20; game++) {
+            Player black = new HumanPlayer();
+            Player white = new HumanPlayer();
+            black.setColor(BoardSpace.SpaceType.BLACK);
+            white.setColor(BoardSpace.SpaceType.WHITE);
+            OthelloGame othello = new OthelloGame(black, white);
+            Bitboard position = Bitboard.initial();
+            Player toMove = black;
+            Player other = white;
+            while (!position.isGameOver()) {
+                Map<BoardSpace, List<BoardSpace>> moves = othello.getAvailableMoves(toMove);
+                assertEquals(mapToMask(moves), position.legalMoves());
+                if (moves.isEmpty()) {
+                    position = position.pass();
+                } else {
+                    List<BoardSpace> keys = new ArrayList<>(moves.keySet());
+                    BoardSpace choice = keys.get(random.nextInt(keys.size()));
+                    othello.takeSpaces(toMove, other, moves, choice);
+                    position = position.play(Bitboard.square(choice.getX(), choice.getY()));
+                }
+                assertEquals(othello.getBitboard(toMove == black ? white : black), position);
+                assertEquals(position.hash(), othello.getHashKey(toMove == black ? white : black));
+                Player swap = toMove;
+                toMove = other;
+                other = swap;
+            }
+        }
+    }
+
+    // the table lookups flip the same discs as the shift fills on every empty square
+    @Test
+    public void rayTablesMatchShiftsTest() {
+        Random random = new Random(5941);
+        for (int i = 0; i < 200; i++) {
+            long own = random.nextLong() & random.nextLong();
+            long opp = random.nextLong() & ~own;
+            for (long rest = ~(own | opp); rest != 0; rest &= rest - 1) {
+                int square = Long.numberOfTrailingZeros(rest);
+                assertEquals(Bitboard.shiftFlips(own, opp, square), Bitboard.flips(own, opp, square));
+            }
+        }
+        assertEquals(Bitboard.bit(Bitboard.square(1, 1)) | Bitboard.bit(Bitboard.square(2, 2)),
+                Bitboard.between(Bitboard.square(0, 0), Bitboard.square(3, 3)));
+        assertEquals(0, Bitboard.between(Bitboard.square(0, 0), Bitboard.square(1, 2)));
+    }
+
+    // the mask API on Player agrees with the Map-returning adapter
+    @Test
+    public void playerMaskTest() {
+        Player black = new HumanPlayer();
+        black.setColor(BoardSpace.SpaceType.BLACK);
+        BoardSpace[][] board = Bitboard.initial().toBoardSpaces();
+        long mask = black.getAvailableMoveMask(board);
+        assertEquals(mapToMask(black.getAvailableMoves(board)), mask);
+        int[] squares = new int[64];
+        assertEquals(4, black.getAvailableMoves(board, squares));
+        assertEquals(Bitboard.bit(Bitboard.square(3, 3)), black.getFlips(board, squares[0]));
+    }
+}
@@ -0,0 +1,107 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MCTSNodeStore and CompactMCTS
+ * JUnit 4.13.2
+ */
+public class TestCompactMCTS {
+
+    // checks the counters below a node of the store
+    private static void checkSubtree(MCTSNodeStore store, int node) {
+        assertTrue(store.getWins(node) <= store.getVisits(node));
+        if (!store.isExpanded(node)) {
+            return;
+        }
+        int childVisits = 0;
+        int first = store.getFirstChild(node);
+        for (int child = first; child < first + store.getChildCount(node); child++) {
+            assertTrue(child > node);
+            childVisits += store.getVisits(child);
+            checkSubtree(store, child);
+        }
+        assertTrue(childVisits <= store.getVisits(node));
+    }
+
+    // children are allocated in one block after the nodes already in the store
+    @Test
+    public void expandTest() {
+        MCTSNodeStore store = new MCTSNodeStore(8);
+        assertEquals(1, store.size());
+        assertFalse(store.isExpanded(0));
+        long moves = Bitboard.initial().legalMoves();
+        assertTrue(store.expand(0, moves));
+        assertEquals(1, store.getFirstChild(0));
+        assertEquals(4, store.getChildCount(0));
+        assertEquals(Long.numberOfTrailingZeros(moves), store.getMove(1));
+        assertTrue(store.expand(1, 0));
+        assertEquals(MCTSNodeStore.PASS, store.getMove(5));
+        // three more children do not fit in eight nodes
+        assertFalse(store.expand(2, 0x7L));
+        assertFalse(store.isExpanded(2));
+        store.update(3, true);
+        store.update(3, false);
+        assertEquals(2, store.getVisits(3));
+        assertEquals(1, store.getWins(3));
+        store.clear();
+        assertEquals(1, store.size());
+        assertEquals(0, store.getVisits(0));
+        assertEquals(14L * 8, store.memoryBytes());
+    }
+
+    // every simulation passes through the root and the counters stay consistent
+    @Test
+    public void searchTest() {
+        Random random = new Random(25);
+        CompactMCTS search = new CompactMCTS(1 << 16, 25);
+        for (int i = 0; i < 5; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 10 + random.nextInt(30));
+            if (position.legalMoves() == 0) {
+                continue;
+            }
+            int move = search.search(position.toBitboard(), 2000);
+            assertNotEquals(0, position.legalMoves() & Bitboard.bit(move));
+            assertEquals(2000, search.getStore().getVisits(0));
+            checkSubtree(search.getStore(), 0);
+        }
+    }
+
+    // a full store keeps searching without adding nodes
+    @Test
+    public void fullStoreTest() {
+        CompactMCTS search = new CompactMCTS(50, 26);
+        int move = search.search(Bitboard.initial(), 1000);
+        assertNotEquals(0, Bitboard.initial().legalMoves() & Bitboard.bit(move));
+        assertTrue(search.getStore().size() <= 50);
+        assertEquals(1000, search.getStore().getVisits(0));
+    }
+
+    // a move that wins at once is found, and a side that has to pass gets no move
+    @Test
+    public void endgameTest() {
+        // Black at a1 and White on the rest of the first row but h1: black wins the game by taking h1
+        long black = Bitboard.bit(Bitboard.square(0, 0));
+        long white = 0;
+        for (int y = 1; y < 7; y++) {
+            white |= Bitboard.bit(Bitboard.square(0, y));
+        }
+        CompactMCTS search = new CompactMCTS(1 << 12, 27);
+        assertEquals(Bitboard.square(0, 7), search.search(new SearchPosition(black, white, true).toBitboard(), 200));
+        assertEquals(CompactMCTS.NO_MOVE, search.search(new SearchPosition(black, white, false).toBitboard(), 50));
+    }
+
+    // the board version returns a space of the board it was given
+    @Test
+    public void boardSpaceTest() {
+        BoardSpace[][] board = Bitboard.initial().toBoardSpaces();
+        Player black = new HumanPlayer();
+        black.setColor(BoardSpace.SpaceType.BLACK);
+        BoardSpace move = new CompactMCTS(1 << 12, 28).search(board, black, 300);
+        assertTrue(black.getAvailableMoves(board).containsKey(move));
+    }
+}
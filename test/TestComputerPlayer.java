@@ -131,4 +131,35 @@ public class TestComputerPlayer {
         computerPlayer.setCustomStrategy(theStrategy);
         assertSame(theStrategy, computerPlayer.getComputerStrategy());
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetHashSizeMbRejectsZero() {
+        ComputerPlayer computerPlayer = new ComputerPlayer("minimax");
+        computerPlayer.setHashSizeMb(0);
+    }
+
+    @Test
+    public void testMCTSKeptBetweenMoves() {
+        ComputerPlayer self = new ComputerPlayer("mcts");
+        self.setColor(BoardSpace.SpaceType.BLACK);
+        Player opponent = new HumanPlayer();
+        opponent.setColor(BoardSpace.SpaceType.WHITE);
+
+        BoardSpace[][] board = new BoardSpace[8][8];
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board[x][y] = new BoardSpace(x, y, BoardSpace.SpaceType.EMPTY);
+            }
+        }
+        board[3][3].setType(BoardSpace.SpaceType.WHITE);
+        board[3][4].setType(BoardSpace.SpaceType.BLACK);
+        board[4][3].setType(BoardSpace.SpaceType.BLACK);
+        board[4][4].setType(BoardSpace.SpaceType.WHITE);
+
+        assertNull(self.getMCTS());
+        assertNotNull(self.computerMove(board, self, opponent, -1, 99));
+        MCTS first = self.getMCTS();
+        assertNotNull(self.computerMove(board, self, opponent, -1, 99));
+        assertSame(first, self.getMCTS());
+    }
 }
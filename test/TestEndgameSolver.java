@@ -0,0 +1,136 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for EndgameSolver
+ * JUnit 4.13.2
+ */
+public class TestEndgameSolver {
+
+    // the alpha-beta search to the end of the game, converted back to a disc difference
+    private int discDifference(SearchPosition position) {
+        int score = new AlphaBetaSearch().search(position, 64).getScore();
+        if (score > 0) {
+            return score - AlphaBetaSearch.WIN_SCORE;
+        } else if (score < 0) {
+            return score + AlphaBetaSearch.WIN_SCORE;
+        }
+        return 0;
+    }
+
+    // the solver agrees with an alpha-beta search that reaches the end of the game
+    @Test
+    public void matchesAlphaBetaTest() {
+        Random random = new Random(31);
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(1));
+        for (int i = 0; i < 20; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 48 + random.nextInt(11));
+            Bitboard before = position.toBitboard();
+            SearchResult result = solver.solve(position);
+            assertEquals(discDifference(position), result.getScore());
+            assertEquals(position.getEmptyCount(), result.getDepth());
+            assertEquals(before, position.toBitboard());
+        }
+    }
+
+    // playing the best move leaves the opponent with exactly the negated score
+    @Test
+    public void bestMoveTest() {
+        Random random = new Random(37);
+        EndgameSolver solver = new EndgameSolver();
+        for (int i = 0; i < 5; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 46);
+            SearchResult result = solver.solve(position);
+            if (!result.hasMove()) {
+                continue;
+            }
+            assertTrue((position.legalMoves() & Bitboard.bit(result.getBestMove())) != 0);
+            position.makeMove(result.getBestMove());
+            assertEquals(-result.getScore(), solver.solve(position).getScore());
+        }
+    }
+
+    // a single empty square is played by whoever can flip something from it
+    @Test
+    public void lastEmptyTest() {
+        // Black owns a1, White owns the rest of row 0 except h1, h1 is empty and the board is filled with black
+        long black = Bitboard.bit(0) | ~0xFFL;
+        long white = 0x7EL;
+        SearchResult result = new EndgameSolver().solve(new SearchPosition(black, white, true));
+        assertEquals(Bitboard.square(0, 7), result.getBestMove());
+        assertEquals(64, result.getScore());
+    }
+
+    // a side with no move passes and the game goes on
+    @Test
+    public void passTest() {
+        long black = Bitboard.bit(0) | ~0xFFL;
+        long white = 0x7EL;
+        // White cannot play h1, so white passes and black takes it
+        SearchResult result = new EndgameSolver().solve(new SearchPosition(black, white, false));
+        assertFalse(result.hasMove());
+        assertEquals(-64, result.getScore());
+    }
+
+    // the win/loss/draw solve agrees in sign with the exact solve and its move keeps the result
+    @Test
+    public void winLossDrawTest() {
+        Random random = new Random(41);
+        EndgameSolver solver = new EndgameSolver();
+        for (int i = 0; i < 10; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 44 + random.nextInt(8));
+            int exact = solver.solve(position).getScore();
+            SearchResult result = solver.solveWinLossDraw(position);
+            assertEquals(Integer.signum(exact), result.getScore());
+            if (result.hasMove() && result.getScore() >= 0) {
+                position.makeMove(result.getBestMove());
+                assertEquals(-result.getScore(), Integer.signum(solver.solve(position).getScore()));
+                position.undoMove();
+            }
+        }
+    }
+
+    // the parallel solver finds the same scores as the serial one and a move that keeps the score
+    @Test
+    public void parallelMatchesSerialTest() {
+        Random random = new Random(47);
+        EndgameSolver serial = new EndgameSolver();
+        ParallelEndgameSolver parallel = new ParallelEndgameSolver(4, new TranspositionTable(4));
+        try {
+            for (int i = 0; i < 6; i++) {
+                SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 44 + random.nextInt(4));
+                Bitboard before = position.toBitboard();
+                int exact = serial.solve(position).getScore();
+                SearchResult result = parallel.solve(position);
+                assertEquals(exact, result.getScore());
+                assertEquals(before, position.toBitboard());
+                assertEquals(Integer.signum(exact), parallel.solveWinLossDraw(position).getScore());
+                if (result.hasMove()) {
+                    position.makeMove(result.getBestMove());
+                    assertEquals(-exact, serial.solve(position).getScore());
+                    position.undoMove();
+                }
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    // the minimax player solves the endgame instead of searching it
+    @Test
+    public void minimaxUsesSolverTest() {
+        SearchPosition position = TestAlphaBetaSearch.randomPosition(new Random(43), 50);
+        BoardSpace[][] board = position.toBitboard().toBoardSpaces();
+        Player player = new HumanPlayer();
+        player.setColor(position.toBitboard().getSideToMove());
+        Minimax minimax = new Minimax(1);
+        SearchResult result = minimax.alphaBetaTimed(board, player, 1000, AlphaBetaSearch.MAX_DEPTH);
+        assertEquals(position.getEmptyCount(), result.getDepth());
+        assertEquals(new EndgameSolver().solve(position).getScore(), result.getScore());
+    }
+}
@@ -192,4 +192,56 @@ public class TestMCTS {
         }
         assertNotEquals("", tester.toString(board));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTreeReuse() {
+        BoardSpace[][] board;
+        board = new BoardSpace[8][8];
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                board[i][j] = new BoardSpace(i, j, BoardSpace.SpaceType.EMPTY);
+            }
+        }
+        board[3][3].setType(BoardSpace.SpaceType.WHITE);
+        board[4][4].setType(BoardSpace.SpaceType.WHITE);
+        board[3][4].setType(BoardSpace.SpaceType.BLACK);
+        board[4][3].setType(BoardSpace.SpaceType.BLACK);
+        Player one = new HumanPlayer();
+        Player two = new HumanPlayer();
+        one.setColor(BoardSpace.SpaceType.BLACK);
+        two.setColor(BoardSpace.SpaceType.WHITE);
+        MCTS tester = new MCTS(1000, one, two, board);
+        BoardSpace first = tester.MCTS_Strategy();
+        assertEquals(0, tester.getReusedSimulations());
+        BoardSpace[][] afterMove = tester.futureBoard(board, Bitboard.square(first.getX(), first.getY()), one);
+        int reply = Long.numberOfTrailingZeros(two.getAvailableMoveMask(afterMove));
+        BoardSpace[][] afterReply = tester.futureBoard(afterMove, reply, two);
+        BoardSpace second = tester.MCTS_Strategy(afterReply, 100);
+        assertTrue(tester.getReusedSimulations() > 0);
+        assertTrue(one.getAvailableMoves(afterReply).containsKey(second));
+    }
+
+    @Test
+    public void testTreeReuseMismatch() {
+        BoardSpace[][] board;
+        board = new BoardSpace[8][8];
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                board[i][j] = new BoardSpace(i, j, BoardSpace.SpaceType.EMPTY);
+            }
+        }
+        board[3][3].setType(BoardSpace.SpaceType.WHITE);
+        board[4][4].setType(BoardSpace.SpaceType.WHITE);
+        board[3][4].setType(BoardSpace.SpaceType.BLACK);
+        board[4][3].setType(BoardSpace.SpaceType.BLACK);
+        Player one = new HumanPlayer();
+        Player two = new HumanPlayer();
+        one.setColor(BoardSpace.SpaceType.BLACK);
+        two.setColor(BoardSpace.SpaceType.WHITE);
+        MCTS tester = new MCTS(300, one, two, board);
+        tester.MCTS_Strategy();
+        BoardSpace next = tester.MCTS_Strategy(board, 100);
+        assertEquals(0, tester.getReusedSimulations());
+        assertTrue(one.getAvailableMoves(board).containsKey(next));
+    }
+}
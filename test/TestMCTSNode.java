@@ -3,6 +3,7 @@ import othello.gamelogic.BoardSpace;
 import othello.gamelogic.MCTSNode;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -123,4 +124,43 @@ public class TestMCTSNode {
         assertFalse(test.isLeaf());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        MCTSNode test = new MCTSNode();
+        AtomicInteger expansions = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                if (test.tryStartExpansion()) {
+                    expansions.incrementAndGet();
+                }
+                for (int i = 0; i < 10000; i++) {
+                    test.addVirtualLoss(3);
+                    test.addSimulation(i % 2 == 0);
+                    test.addVirtualLoss(-3);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, expansions.get());
+        assertEquals(40000, test.getTotalSimulations());
+        assertEquals(20000, test.getNumberOfWin());
+        assertEquals(0, test.getVirtualLoss());
+    }
+
+    @Test
+    public void testFinishExpansion() {
+        MCTSNode test = new MCTSNode();
+        assertFalse(test.isExpanded());
+        assertTrue(test.tryStartExpansion());
+        assertFalse(test.tryStartExpansion());
+        ArrayList<MCTSNode> children = new ArrayList<>();
+        children.add(new MCTSNode());
+        test.finishExpansion(children);
+        assertTrue(test.isExpanded());
+        assertEquals(1, test.getMctsChildren().size());
+    }
+}
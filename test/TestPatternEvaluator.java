@@ -0,0 +1,110 @@
+import othello.gamelogic.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PatternEvaluator
+ * JUnit 4.13.2
+ */
+public class TestPatternEvaluator {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // every square is covered by some pattern and instances of a family have the same size
+    @Test
+    public void patternSetTest() {
+        assertEquals(46, PatternSet.instances());
+        for (int square = 0; square < 64; square++) {
+            assertTrue(PatternSet.coverage(square) > 0);
+        }
+        int[] indices = new int[PatternSet.instances()];
+        PatternSet.computeIndices(0, 0, indices);
+        for (int index : indices) {
+            assertEquals(0, index);
+        }
+    }
+
+    // random games: the indices kept by make and undo match indices computed from scratch
+    @Test
+    public void incrementalIndicesTest() {
+        Random random = new Random(17);
+        int[] expected = new int[PatternSet.instances()];
+        for (int game = 0; game < 20; game++) {
+            SearchPosition position = new SearchPosition(Bitboard.initial());
+            position.trackPatterns();
+            while (!position.isGameOver()) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    position.makePass();
+                } else {
+                    position.makeMove(Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))));
+                }
+                PatternSet.computeIndices(position.getBlack(), position.getWhite(), expected);
+                assertArrayEquals(expected, position.getPatternIndices());
+            }
+            while (position.getPly() > 0) {
+                position.undoMove();
+            }
+            PatternSet.computeIndices(position.getBlack(), position.getWhite(), expected);
+            assertArrayEquals(expected, position.getPatternIndices());
+        }
+    }
+
+    // the untrained weights score like the board weights, up to rounding
+    @Test
+    public void boardWeightsTest() {
+        Random random = new Random(18);
+        PositionEvaluator squares = new SquareWeightEvaluator();
+        PositionEvaluator patterns = new PatternEvaluator();
+        for (int i = 0; i < 50; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 5 + random.nextInt(50));
+            assertEquals(squares.evaluate(position), patterns.evaluate(position), 3);
+        }
+    }
+
+    // a search with incremental indices finds the same result as one that recomputes them
+    @Test
+    public void searchTest() {
+        Random random = new Random(19);
+        PatternEvaluator patterns = new PatternEvaluator();
+        for (int i = 0; i < 10; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 10 + random.nextInt(30));
+            SearchResult recomputed = new AlphaBetaSearch(patterns::evaluate).search(position, 4);
+            assertNull(position.getPatternIndices());
+            SearchResult incremental = new AlphaBetaSearch(patterns).search(position, 4);
+            assertNotNull(position.getPatternIndices());
+            assertEquals(recomputed.getScore(), incremental.getScore());
+            assertEquals(recomputed.getNodes(), incremental.getNodes());
+        }
+    }
+
+    // weights survive a round trip through the binary file
+    @Test
+    public void saveLoadTest() throws IOException {
+        PatternWeights weights = new PatternWeights();
+        weights.set(3, 0, 12345, -777);
+        weights.set(PatternWeights.PHASES - 1, PatternSet.FAMILIES - 1, 80, 40000);
+        File file = folder.newFile("weights.bin");
+        weights.save(file.getPath());
+        PatternWeights loaded = PatternWeights.load(file.getPath());
+        assertEquals(-777, loaded.get(3, 0, 12345));
+        assertEquals(Short.MAX_VALUE, loaded.get(PatternWeights.PHASES - 1, PatternSet.FAMILIES - 1, 80));
+        assertEquals(0, loaded.get(0, 0, 0));
+    }
+
+    // a file that is not a weight file is rejected
+    @Test(expected = IOException.class)
+    public void badFileTest() throws IOException {
+        File file = folder.newFile("empty.bin");
+        PatternWeights.load(file.getPath());
+    }
+}
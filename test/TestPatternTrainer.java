@@ -0,0 +1,90 @@
+import othello.gamelogic.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PatternTrainer
+ * JUnit 4.13.2
+ */
+public class TestPatternTrainer {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // writes random positions labelled with their own disc difference, which the patterns can represent
+    private File discDifferenceData(int samples) throws IOException {
+        File file = folder.newFile("data.bin");
+        Random random = new Random(18);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (int i = 0; i < samples; i++) {
+                SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 10 + random.nextInt(20));
+                PatternTrainer.writeSample(out, position.getBlack(), position.getWhite(),
+                        Long.bitCount(position.getBlack()) - Long.bitCount(position.getWhite()));
+            }
+        }
+        return file;
+    }
+
+    // the error falls epoch after epoch when streaming in batches smaller than the file
+    @Test
+    public void errorFallsTest() throws IOException {
+        File data = discDifferenceData(3000);
+        assertEquals(3000L * PatternTrainer.SAMPLE_BYTES, data.length());
+        PatternTrainer trainer = new PatternTrainer(2);
+        trainer.setBatchSize(700);
+        trainer.setLearningRate(0.01);
+        try {
+            double first = trainer.trainEpoch(data.getPath());
+            double last = first;
+            for (int epoch = 0; epoch < 5; epoch++) {
+                last = trainer.trainEpoch(data.getPath());
+            }
+            assertTrue(last < first / 4);
+        } finally {
+            trainer.shutdown();
+        }
+    }
+
+    // the exported weights make the pattern evaluator predict what the trainer predicts
+    @Test
+    public void exportTest() throws IOException {
+        File data = discDifferenceData(1000);
+        PatternTrainer trainer = new PatternTrainer(1);
+        try {
+            trainer.setLearningRate(0.01);
+            PatternWeights weights = trainer.train(data.getPath(), 3);
+            double[] errors = trainer.getEpochErrors();
+            assertEquals(3, errors.length);
+            assertTrue(errors[2] <= errors[0]);
+            File file = folder.newFile("weights.bin");
+            weights.save(file.getPath());
+            PatternEvaluator evaluator = new PatternEvaluator(PatternWeights.load(file.getPath()));
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(new Random(3), 20);
+            double predicted = trainer.predict(position.getBlack(), position.getWhite());
+            int sign = position.isBlackToMove() ? 1 : -1;
+            assertEquals(predicted, sign * evaluator.evaluate(position), 2);
+        } finally {
+            trainer.shutdown();
+        }
+    }
+
+    // self-play records one sample per placement
+    @Test
+    public void selfPlayTest() throws IOException {
+        File file = folder.newFile("selfplay.bin");
+        long samples = PatternTrainer.recordSelfPlay(file.getPath(), 3, 1, 5);
+        assertTrue(samples > 3 * 40);
+        assertEquals(samples * PatternTrainer.SAMPLE_BYTES, file.length());
+    }
+}
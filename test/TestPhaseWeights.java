@@ -0,0 +1,149 @@
+import othello.Constants;
+import othello.gamelogic.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PhaseWeights
+ * JUnit 4.13.2
+ */
+public class TestPhaseWeights {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // builds a configuration text with one phase per limit, every square of a phase weighing the given value
+    private static String config(int[] limits, int[] values) {
+        StringBuilder text = new StringBuilder("# test configuration\n");
+        for (int phase = 0; phase < limits.length; phase++) {
+            text.append("phase ").append(limits[phase]).append('\n');
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    text.append(values[phase]).append(y < 7 ? " " : "\n");
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    // the default configuration opens with the original board weights and ends at 64 discs
+    @Test
+    public void defaultTest() {
+        PhaseWeights weights = PhaseWeights.getDefault();
+        assertTrue(weights.getPhaseCount() > 1);
+        assertEquals(64, weights.getMaxDiscs(weights.getPhaseCount() - 1));
+        int[] opening = weights.table(4);
+        for (int square = 0; square < 64; square++) {
+            assertEquals(Constants.BOARD_WEIGHTS[Bitboard.getX(square)][Bitboard.getY(square)], opening[square]);
+        }
+    }
+
+    // the table is chosen by the number of discs on the board
+    @Test
+    public void phaseSelectionTest() throws IOException {
+        PhaseWeights weights = PhaseWeights.load(new StringReader(config(new int[]{20, 40, 64}, new int[]{1, 2, 3})));
+        assertEquals(3, weights.getPhaseCount());
+        assertEquals(1, weights.table(20)[0]);
+        assertEquals(2, weights.table(21)[0]);
+        assertEquals(2, weights.table(40)[0]);
+        assertEquals(3, weights.table(41)[0]);
+        assertEquals(3, weights.table(64)[0]);
+        // 10 own discs and 5 opponent discs fall in the first phase
+        assertEquals(5, weights.score(0x3FFL, 0x7C00L));
+        // 30 own discs and 0 opponent discs fall in the second phase
+        assertEquals(60, weights.score(0x3FFFFFFFL, 0));
+    }
+
+    // a single table scores like the original square weight evaluator
+    @Test
+    public void singleTableTest() {
+        Random random = new Random(19);
+        PhaseWeights single = PhaseWeights.single(Constants.BOARD_WEIGHTS);
+        PositionEvaluator evaluator = new SquareWeightEvaluator();
+        for (int i = 0; i < 30; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 5 + random.nextInt(50));
+            assertEquals(evaluator.evaluate(position), single.score(position.getPlayer(), position.getOpponent()));
+        }
+    }
+
+    // the weight classes score like a sum over the discs of the phase table
+    @Test
+    public void weightClassTest() {
+        Random random = new Random(20);
+        PhaseWeights weights = PhaseWeights.getDefault();
+        for (int i = 0; i < 200; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 1 + random.nextInt(58));
+            long own = position.getPlayer();
+            long opp = position.getOpponent();
+            int[] table = weights.table(Long.bitCount(own | opp));
+            int expected = 0;
+            for (int square = 0; square < 64; square++) {
+                if ((own & Bitboard.bit(square)) != 0) {
+                    expected += table[square];
+                } else if ((opp & Bitboard.bit(square)) != 0) {
+                    expected -= table[square];
+                }
+            }
+            assertEquals(expected, weights.score(own, opp));
+        }
+        assertEquals(7, PhaseWeights.single(Constants.BOARD_WEIGHTS).getClassCount(0));
+    }
+
+    // computeWeight uses the weights set on the minimax player
+    @Test
+    public void minimaxTest() throws IOException {
+        File file = folder.newFile("weights.txt");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(config(new int[]{64}, new int[]{7}));
+        }
+        Minimax minimax = new Minimax();
+        minimax.setPhaseWeights(PhaseWeights.load(file.getPath()));
+        Player black = new HumanPlayer();
+        black.setColor(BoardSpace.SpaceType.BLACK);
+        SearchPosition position = new SearchPosition(Bitboard.initial());
+        position.makeMove(Bitboard.nthSquare(position.legalMoves(), 0));
+        // four black discs and one white disc at seven each
+        assertEquals(21, minimax.computeWeight(position, black));
+    }
+
+    // the alpha-beta search scores its leaves with the weights set on the minimax player
+    @Test
+    public void alphaBetaTest() throws IOException {
+        Minimax minimax = new Minimax();
+        assertSame(PhaseWeights.getDefault(), ((SquareWeightEvaluator) minimax.getEvaluator()).getWeights());
+        minimax.setPhaseWeights(PhaseWeights.load(new StringReader(config(new int[]{64}, new int[]{7}))));
+        Player black = new HumanPlayer();
+        black.setColor(BoardSpace.SpaceType.BLACK);
+        // every opening move leaves four black discs and one white disc at seven each
+        assertEquals(21, minimax.alphaBeta(Bitboard.initial().toBoardSpaces(), black, 1).getScore());
+        // an evaluation set explicitly is kept when the weights change
+        PositionEvaluator features = new FeatureEvaluator();
+        minimax.setEvaluator(features);
+        minimax.setPhaseWeights(PhaseWeights.getDefault());
+        assertSame(features, minimax.getEvaluator());
+    }
+
+    // a phase with a missing row is rejected
+    @Test(expected = IOException.class)
+    public void missingRowTest() throws IOException {
+        String text = config(new int[]{30, 64}, new int[]{1, 2});
+        PhaseWeights.load(new StringReader(text.replaceFirst("1 1 1 1 1 1 1 1\n", "")));
+    }
+
+    // phases that do not reach 64 discs are rejected
+    @Test(expected = IOException.class)
+    public void lastPhaseTest() throws IOException {
+        PhaseWeights.load(new StringReader(config(new int[]{20, 40}, new int[]{1, 2})));
+    }
+}
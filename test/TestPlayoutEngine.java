@@ -0,0 +1,82 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PlayoutEngine
+ * JUnit 4.13.2
+ */
+public class TestPlayoutEngine {
+
+    // playouts match random games played with SearchPosition from the same random numbers
+    @Test
+    public void matchesSearchPositionTest() {
+        Random random = new Random(24);
+        PlayoutEngine engine = new PlayoutEngine(7);
+        PlayoutEngine reference = new PlayoutEngine(7);
+        for (int i = 0; i < 200; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, random.nextInt(50));
+            int result = engine.playout(position.getPlayer(), position.getOpponent());
+            boolean moverIsBlack = position.isBlackToMove();
+            while (!position.isGameOver()) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    position.makePass();
+                } else {
+                    position.makeMove(reference.randomSquare(moves));
+                }
+            }
+            int difference = position.discDifference();
+            if (position.isBlackToMove() != moverIsBlack) {
+                difference = -difference;
+            }
+            assertEquals(difference, result);
+        }
+        assertEquals(200, engine.getPlayouts());
+    }
+
+    // a finished game is scored as it stands
+    @Test
+    public void finishedGameTest() {
+        PlayoutEngine engine = new PlayoutEngine(0);
+        assertEquals(64, engine.playout(-1L, 0));
+        assertEquals(-3, engine.playout(0x1L, 0xF0L));
+    }
+
+    // random numbers stay in range and every value comes up
+    @Test
+    public void nextIntTest() {
+        PlayoutEngine engine = new PlayoutEngine(25);
+        int[] counts = new int[10];
+        for (int i = 0; i < 100000; i++) {
+            counts[engine.nextInt(10)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 9000 && count < 11000);
+        }
+        long mask = 0x8100000000000081L;
+        for (int i = 0; i < 100; i++) {
+            assertNotEquals(0, mask & Bitboard.bit(engine.randomSquare(mask)));
+        }
+    }
+
+    // engines with the same seed play the same games, different seeds do not
+    @Test
+    public void seedTest() {
+        Bitboard start = Bitboard.initial();
+        PlayoutEngine first = new PlayoutEngine(26);
+        PlayoutEngine second = new PlayoutEngine(26);
+        PlayoutEngine other = new PlayoutEngine(27);
+        boolean differs = false;
+        for (int i = 0; i < 20; i++) {
+            int result = first.playout(start.getPlayer(), start.getOpponent());
+            assertEquals(result, second.playout(start.getPlayer(), start.getOpponent()));
+            differs |= result != other.playout(start.getPlayer(), start.getOpponent());
+        }
+        assertTrue(differs);
+    }
+}
@@ -0,0 +1,96 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ProofNumberSearch
+ * JUnit 4.13.2
+ */
+public class TestProofNumberSearch {
+
+    // with enough budget the proof agrees with the exact endgame solver
+    @Test
+    public void matchesSolverTest() {
+        Random random = new Random(47);
+        EndgameSolver solver = new EndgameSolver();
+        ProofNumberSearch prover = new ProofNumberSearch(4, new TranspositionTable(1));
+        for (int i = 0; i < 15; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 46 + random.nextInt(8));
+            int expected = Integer.signum(solver.solve(position).getScore());
+            int result = prover.prove(position, 1_000_000);
+            assertEquals(expected, result);
+        }
+    }
+
+    // the proof move keeps the proven result
+    @Test
+    public void proofMoveTest() {
+        Random random = new Random(53);
+        EndgameSolver solver = new EndgameSolver();
+        ProofNumberSearch prover = new ProofNumberSearch();
+        for (int i = 0; i < 10; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 48);
+            int result = prover.prove(position);
+            if ((result == ProofNumberSearch.WIN || result == ProofNumberSearch.DRAW) && position.legalMoves() != 0) {
+                position.makeMove(prover.getProofMove());
+                assertEquals(-result, Integer.signum(solver.solve(position).getScore()));
+                position.undoMove();
+            }
+        }
+    }
+
+    // a tiny budget gives up instead of guessing, and a cached proof is reused by a later call
+    @Test
+    public void budgetAndCacheTest() {
+        SearchPosition position = TestAlphaBetaSearch.randomPosition(new Random(59), 44);
+        ProofNumberSearch prover = new ProofNumberSearch(4, new TranspositionTable(4));
+        assertEquals(ProofNumberSearch.UNKNOWN, prover.prove(position, 1));
+        int result = prover.prove(position, 2_000_000);
+        assertNotEquals(ProofNumberSearch.UNKNOWN, result);
+        prover.prove(position, 2_000_000);
+        assertTrue(prover.getExpansions() <= 2);
+    }
+
+    // a loss already proven by the win/loss/draw solver is not handed to the prover again
+    @Test
+    public void minimaxSkipsProvenLossTest() {
+        Random random = new Random(67);
+        EndgameSolver solver = new EndgameSolver();
+        SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 48);
+        while (position.legalMoves() == 0 || solver.solve(position).getScore() >= 0) {
+            position = TestAlphaBetaSearch.randomPosition(random, 48);
+        }
+        Player player = new HumanPlayer();
+        player.setColor(position.toBitboard().getSideToMove());
+        ProofNumberSearch prover = new ProofNumberSearch(1, new TranspositionTable(1));
+        Minimax minimax = new Minimax(1);
+        minimax.setEndgameThreshold(0);
+        minimax.setProofNumberSearch(prover);
+        minimax.alphaBeta(position.toBitboard().toBoardSpaces(), player, 1);
+        assertEquals(0, prover.getExpansions());
+    }
+
+    // MCTS simulations near the end return the proven result instead of a random playout
+    @Test
+    public void mctsOracleTest() {
+        SearchPosition position = TestAlphaBetaSearch.randomPosition(new Random(61), 50);
+        Player self = new HumanPlayer();
+        Player op = new HumanPlayer();
+        self.setColor(position.toBitboard().getSideToMove());
+        op.setColor(self.getColor() == BoardSpace.SpaceType.BLACK ? BoardSpace.SpaceType.WHITE : BoardSpace.SpaceType.BLACK);
+        BoardSpace[][] board = position.toBitboard().toBoardSpaces();
+        MCTS mcts = new MCTS(10, self, op, board);
+        mcts.setProver(new ProofNumberSearch(1, new TranspositionTable(1)));
+        int expected = Integer.signum(new EndgameSolver().solve(position).getScore());
+        assertEquals(expected, mcts.prove(board, true));
+        MCTSNode root = new MCTSNode();
+        root.setBoard(board);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected > 0, mcts.simulation(root));
+        }
+    }
+}
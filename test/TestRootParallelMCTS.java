@@ -0,0 +1,88 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RootParallelMCTS
+ * JUnit 4.13.2
+ */
+public class TestRootParallelMCTS {
+
+    // a starting board
+    private static BoardSpace[][] initialBoard() {
+        return Bitboard.initial().toBoardSpaces();
+    }
+
+    private static Player player(BoardSpace.SpaceType color) {
+        Player player = new HumanPlayer();
+        player.setColor(color);
+        return player;
+    }
+
+    // every tree runs its simulations and the visits of the root moves add up to all of them
+    @Test
+    public void mergedVisitsTest() {
+        BoardSpace[][] board = initialBoard();
+        Player self = player(BoardSpace.SpaceType.BLACK);
+        Player op = player(BoardSpace.SpaceType.WHITE);
+        RootParallelMCTS search = new RootParallelMCTS(3, self, op, 22);
+        try {
+            BoardSpace move = search.search(board, 200);
+            assertTrue(self.getAvailableMoves(board).containsKey(move));
+            assertEquals(3 * 201, search.getPlayouts());
+            int total = 0;
+            int chosen = search.getVisits(Bitboard.square(move.getX(), move.getY()));
+            for (int square = 0; square < 64; square++) {
+                total += search.getVisits(square);
+                assertTrue(search.getVisits(square) <= chosen);
+                if ((self.getAvailableMoveMask(board) & Bitboard.bit(square)) == 0) {
+                    assertEquals(0, search.getVisits(square));
+                }
+            }
+            assertEquals(search.getPlayouts(), total);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    // after the chosen move and a reply, the trees continue from the reply
+    @Test
+    public void treeReuseTest() {
+        BoardSpace[][] board = initialBoard();
+        Player self = player(BoardSpace.SpaceType.BLACK);
+        Player op = player(BoardSpace.SpaceType.WHITE);
+        RootParallelMCTS search = new RootParallelMCTS(2, self, op, 23);
+        MCTS helper = new MCTS();
+        try {
+            BoardSpace move = search.search(board, 500);
+            BoardSpace[][] afterMove = helper.futureBoard(board, Bitboard.square(move.getX(), move.getY()), self);
+            int reply = Long.numberOfTrailingZeros(op.getAvailableMoveMask(afterMove));
+            BoardSpace[][] afterReply = helper.futureBoard(afterMove, reply, op);
+            search.search(afterReply, 50);
+            assertTrue(search.getPlayouts() > 2 * 51);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    // a computer player with several MCTS threads still plays a legal move
+    @Test
+    public void computerPlayerTest() {
+        ComputerPlayer self = new ComputerPlayer("mcts");
+        self.setColor(BoardSpace.SpaceType.BLACK);
+        self.setMCTSThreads(2);
+        Player op = player(BoardSpace.SpaceType.WHITE);
+        BoardSpace[][] board = initialBoard();
+        BoardSpace move = self.computerMove(board, self, op, -1, 99);
+        assertTrue(self.getAvailableMoves(board).containsKey(move));
+        assertNull(self.getMCTS());
+    }
+
+    // a thread count below one is rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void badThreadsTest() {
+        new RootParallelMCTS(0, player(BoardSpace.SpaceType.BLACK), player(BoardSpace.SpaceType.WHITE), 1);
+    }
+}
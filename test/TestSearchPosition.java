@@ -0,0 +1,82 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SearchPosition
+ * JUnit 4.13.2
+ */
+public class TestSearchPosition {
+
+    // makeMove matches the immutable Bitboard.play and reports the flipped discs
+    @Test
+    public void makeMoveTest() {
+        SearchPosition position = new SearchPosition(Bitboard.initial());
+        long flipped = position.makeMove(Bitboard.square(2, 3));
+        assertEquals(Bitboard.bit(Bitboard.square(3, 3)), flipped);
+        assertEquals(Bitboard.initial().play(Bitboard.square(2, 3)), position.toBitboard());
+        assertFalse(position.isBlackToMove());
+    }
+
+    // playing a whole random game and undoing every move restores the start exactly
+    @Test
+    public void undoRestoresTest() {
+        Random random = new Random(27);
+        for (int game = 0; game < 50; game++) {
+            SearchPosition position = new SearchPosition(Bitboard.initial());
+            while (!position.isGameOver()) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    position.makePass();
+                } else {
+                    position.makeMove(Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))));
+                }
+            }
+            assertTrue(position.getPly() >= 9);
+            while (position.getPly() > 0) {
+                position.undoMove();
+            }
+            assertEquals(Bitboard.initial(), position.toBitboard());
+        }
+    }
+
+    // the incremental hash always equals a full recompute, and undo restores it
+    @Test
+    public void incrementalHashTest() {
+        Random random = new Random(64);
+        SearchPosition position = new SearchPosition(Bitboard.initial());
+        long start = position.getHash();
+        while (!position.isGameOver()) {
+            long moves = position.legalMoves();
+            if (moves == 0) {
+                position.makePass();
+            } else {
+                position.makeMove(Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))));
+            }
+            assertEquals(position.toBitboard().hash(), position.getHash());
+            assertEquals(Zobrist.hash(position.toBitboard().toBoardSpaces(),
+                    position.isBlackToMove() ? BoardSpace.SpaceType.BLACK : BoardSpace.SpaceType.WHITE),
+                    position.getHash());
+        }
+        while (position.getPly() > 0) {
+            position.undoMove();
+        }
+        assertEquals(start, position.getHash());
+    }
+
+    // a pass only hands over the turn
+    @Test
+    public void passTest() {
+        SearchPosition position = new SearchPosition(Bitboard.initial());
+        position.makePass();
+        assertFalse(position.isBlackToMove());
+        assertEquals(SearchPosition.PASS, position.getLastMove());
+        position.undoMove();
+        assertTrue(position.isBlackToMove());
+        assertEquals(0, position.discDifference());
+    }
+}
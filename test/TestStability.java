@@ -0,0 +1,93 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Stability
+ * JUnit 4.13.2
+ */
+public class TestStability {
+
+    // a lone corner is stable, a lone edge disc next to empty squares is not
+    @Test
+    public void cornerTest() {
+        long own = Bitboard.bit(Bitboard.square(0, 0)) | Bitboard.bit(Bitboard.square(3, 0));
+        long opp = Bitboard.bit(Bitboard.square(4, 0));
+        assertEquals(Bitboard.bit(Bitboard.square(0, 0)), Stability.stableDiscs(own, opp));
+    }
+
+    // an edge run from the corner is stable up to the first opponent disc
+    @Test
+    public void edgeRunTest() {
+        long own = 0L;
+        for (int y = 0; y < 4; y++) {
+            own |= Bitboard.bit(Bitboard.square(0, y));
+        }
+        long opp = Bitboard.bit(Bitboard.square(0, 4));
+        assertEquals(own, Stability.stableDiscs(own, opp));
+        assertEquals(0, Stability.stableDiscs(opp, own));
+    }
+
+    // on a full board every disc is stable
+    @Test
+    public void fullBoardTest() {
+        long own = 0x5A5A5A5A5A5A5A5AL;
+        assertEquals(own, Stability.stableDiscs(own, ~own));
+        assertEquals(~own, Stability.stableDiscs(~own, own));
+        assertEquals(64 - 2 * Long.bitCount(~own), Stability.upperBound(own, ~own));
+    }
+
+    // random games: a disc found stable is never flipped for the rest of the game
+    @Test
+    public void neverFlippedTest() {
+        Random random = new Random(16);
+        for (int game = 0; game < 50; game++) {
+            SearchPosition position = new SearchPosition(Bitboard.initial());
+            long stableBlack = 0;
+            long stableWhite = 0;
+            while (!position.isGameOver()) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    position.makePass();
+                } else {
+                    position.makeMove(Bitboard.nthSquare(moves, random.nextInt(Long.bitCount(moves))));
+                }
+                long black = position.getBlack();
+                long white = position.getWhite();
+                assertEquals(stableBlack, black & stableBlack);
+                assertEquals(stableWhite, white & stableWhite);
+                stableBlack |= Stability.stableDiscs(black, white);
+                stableWhite |= Stability.stableDiscs(white, black);
+            }
+        }
+    }
+
+    // the feature evaluation is symmetric: swapping the side to move negates it
+    @Test
+    public void featureEvaluatorSymmetryTest() {
+        Random random = new Random(17);
+        PositionEvaluator evaluator = new FeatureEvaluator();
+        for (int i = 0; i < 50; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 10 + random.nextInt(40));
+            SearchPosition swapped = new SearchPosition(position.getBlack(), position.getWhite(),
+                    !position.isBlackToMove());
+            assertEquals(-evaluator.evaluate(position), evaluator.evaluate(swapped));
+        }
+    }
+
+    // with only the stability weight, the score is the stable disc difference
+    @Test
+    public void featureEvaluatorStabilityTest() {
+        long black = 0xFFL;
+        long white = 0xFF00L;
+        SearchPosition position = new SearchPosition(black, white, true);
+        PositionEvaluator squares = new SquareWeightEvaluator();
+        PositionEvaluator evaluator = new FeatureEvaluator(1, 0, 0, 0);
+        // the whole first row is black and stable, no white disc is stable yet
+        assertEquals(squares.evaluate(position) + 8, evaluator.evaluate(position));
+    }
+}
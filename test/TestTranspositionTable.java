@@ -0,0 +1,70 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TranspositionTable
+ * JUnit 4.13.2
+ */
+public class TestTranspositionTable {
+
+    // a stored entry is found again with every field intact
+    @Test
+    public void storeProbeTest() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(12345L, 7, TranspositionTable.LOWER, -321, 42);
+        long entry = table.probe(12345L);
+        assertNotEquals(TranspositionTable.MISS, entry);
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(-321, TranspositionTable.score(entry));
+        assertEquals(42, TranspositionTable.move(entry));
+        assertEquals(TranspositionTable.MISS, table.probe(54321L));
+        assertEquals(0.5, table.getHitRate(), 1e-9);
+    }
+
+    // the size is a power of two number of slots within the requested memory
+    @Test
+    public void sizeTest() {
+        TranspositionTable table = new TranspositionTable(3);
+        assertEquals(0, Integer.bitCount(table.capacity()) - 1);
+        assertTrue(table.sizeInBytes() <= 3L << 20);
+    }
+
+    // a shallow result never evicts a deeper one of the same search, it uses the second slot
+    @Test
+    public void depthPreferredTest() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.capacity() / 2;
+        long deep = 5;
+        long shallow = deep + buckets;
+        long newer = deep + 2 * buckets;
+        table.store(deep, 9, TranspositionTable.EXACT, 1, TranspositionTable.NO_MOVE);
+        table.store(shallow, 2, TranspositionTable.EXACT, 2, TranspositionTable.NO_MOVE);
+        table.store(newer, 3, TranspositionTable.EXACT, 3, TranspositionTable.NO_MOVE);
+        assertEquals(1, TranspositionTable.score(table.probe(deep)));
+        assertEquals(TranspositionTable.MISS, table.probe(shallow));
+        assertEquals(3, TranspositionTable.score(table.probe(newer)));
+    }
+
+    // searching with a table gives the same scores with fewer nodes on a repeat search
+    @Test
+    public void searchWithTableTest() {
+        Random random = new Random(8);
+        for (int i = 0; i < 10; i++) {
+            SearchPosition position = TestAlphaBetaSearch.randomPosition(random, 12 + random.nextInt(20));
+            AlphaBetaSearch plain = new AlphaBetaSearch();
+            AlphaBetaSearch cached = new AlphaBetaSearch();
+            cached.setTranspositionTable(new TranspositionTable(4));
+            int expected = plain.search(position, 5).getScore();
+            assertEquals(expected, cached.search(position, 5).getScore());
+            SearchResult again = cached.search(position, 5);
+            assertEquals(expected, again.getScore());
+            assertTrue(again.getNodes() < plain.getNodes());
+        }
+    }
+}
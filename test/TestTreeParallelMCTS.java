@@ -0,0 +1,114 @@
+import othello.gamelogic.*;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TreeParallelMCTS
+ * JUnit 4.13.2
+ */
+public class TestTreeParallelMCTS {
+
+    private static Player player(BoardSpace.SpaceType color) {
+        Player player = new HumanPlayer();
+        player.setColor(color);
+        return player;
+    }
+
+    // checks the counters of a subtree and returns its number of nodes
+    private static int checkSubtree(MCTSNode node) {
+        assertEquals(0, node.getVirtualLoss());
+        assertTrue(node.getNumberOfWin() <= node.getTotalSimulations());
+        int childSimulations = 0;
+        int nodes = 1;
+        Set<Integer> squares = new HashSet<>();
+        for (MCTSNode child : node.getMctsChildren()) {
+            assertSame(node, child.getParent());
+            assertTrue(squares.add(Bitboard.square(child.getSpace().getX(), child.getSpace().getY())));
+            childSimulations += child.getTotalSimulations();
+            nodes += checkSubtree(child);
+        }
+        // a node's own playouts come before its children are published, the rest pass through a child
+        assertTrue(childSimulations <= node.getTotalSimulations());
+        return nodes;
+    }
+
+    // four threads on one tree run exactly the simulations asked for and leave consistent counters
+    @Test
+    public void sharedTreeTest() {
+        BoardSpace[][] board = Bitboard.initial().toBoardSpaces();
+        Player self = player(BoardSpace.SpaceType.BLACK);
+        TreeParallelMCTS search = new TreeParallelMCTS(4, self, player(BoardSpace.SpaceType.WHITE), 23);
+        try {
+            BoardSpace move = search.search(board, 3000);
+            assertTrue(self.getAvailableMoves(board).containsKey(move));
+            MCTSNode root = search.getRoot();
+            assertEquals(3000, root.getTotalSimulations());
+            assertTrue(checkSubtree(root) > 100);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    // the most visited move is played and the next search continues from the opponent's reply
+    @Test
+    public void treeReuseTest() {
+        BoardSpace[][] board = Bitboard.initial().toBoardSpaces();
+        Player self = player(BoardSpace.SpaceType.BLACK);
+        Player op = player(BoardSpace.SpaceType.WHITE);
+        TreeParallelMCTS search = new TreeParallelMCTS(2, self, op, 24);
+        MCTS helper = new MCTS();
+        try {
+            BoardSpace move = search.search(board, 2000);
+            for (MCTSNode child : search.getRoot().getMctsChildren()) {
+                assertTrue(child.getTotalSimulations() <= search.getRoot().getMctsChildren().stream()
+                        .filter(c -> c.getSpace().getX() == move.getX() && c.getSpace().getY() == move.getY())
+                        .findFirst().get().getTotalSimulations());
+            }
+            BoardSpace[][] afterMove = helper.futureBoard(board, Bitboard.square(move.getX(), move.getY()), self);
+            int reply = Long.numberOfTrailingZeros(op.getAvailableMoveMask(afterMove));
+            BoardSpace[][] afterReply = helper.futureBoard(afterMove, reply, op);
+            search.search(afterReply, 100);
+            assertTrue(search.getReusedSimulations() > 0);
+            assertEquals(search.getReusedSimulations() + 100, search.getRoot().getTotalSimulations());
+            checkSubtree(search.getRoot());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    // a timed search stops on its own and a computer player can share one tree between threads
+    @Test
+    public void timedAndPlayerTest() {
+        BoardSpace[][] board = Bitboard.initial().toBoardSpaces();
+        Player op = player(BoardSpace.SpaceType.WHITE);
+        ComputerPlayer self = new ComputerPlayer("mcts");
+        self.setColor(BoardSpace.SpaceType.BLACK);
+        TreeParallelMCTS search = new TreeParallelMCTS(2, self, op, 25);
+        try {
+            assertNotNull(search.searchTimed(board, 100));
+            assertTrue(search.getRoot().getTotalSimulations() > 0);
+        } finally {
+            search.shutdown();
+        }
+        self.setMCTSThreads(2);
+        self.setMCTSSharedTree(true);
+        assertTrue(self.getAvailableMoves(board).containsKey(self.computerMove(board, self, op, -1, 99)));
+    }
+
+    // a negative virtual loss is rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void badVirtualLossTest() {
+        TreeParallelMCTS search = new TreeParallelMCTS(1, player(BoardSpace.SpaceType.BLACK),
+                player(BoardSpace.SpaceType.WHITE), 1);
+        try {
+            search.setVirtualLoss(-1);
+        } finally {
+            search.shutdown();
+        }
+    }
+}